@@ -54,18 +54,101 @@ public class OORegexConverter {
 		return exps;
 	}
 
-	/** convert a ooregex back to a RegExp */
+	/**
+	 * convert a ooregex back to a RegExp. The RegExp is built from the objects,
+	 * as the parser would build it from the string ToRegexString gives
+	 * (adjacent chars and strings of a concatenation are joined in a string),
+	 * without writing and parsing the string
+	 */
 	public static RegExp convertBackToRegex(ooregex r) {
-		String s = ToRegexString.convertToRegexString(r);
-		//s = escapeDq(s, true);
-		try{
-			return new RegExp(s);
-		}catch (Exception e) {
-			System.err.println("cannot buil regex from " + s);
-			throw e;
-		}
+		return r.accept(toRegExp);
 	}
 
+	private static final RegexVisitor<RegExp> toRegExp = new RegexVisitor<RegExp>() {
+
+		@Override
+		public RegExp visit(REGEXP_UNION r) {
+			return RegExp.makeUnion(r.exp1.accept(this), r.exp2.accept(this));
+		}
+
+		@Override
+		public RegExp visit(REGEXP_CONCATENATION r) {
+			// the string has no parenthesis around a concatenation, the parser
+			// builds it from the right
+			List<ooregex> operands = oobinregex.split(r, REGEXP_CONCATENATION.class);
+			RegExp result = operands.get(operands.size() - 1).accept(this);
+			for (int i = operands.size() - 2; i >= 0; i--) {
+				result = RegExp.makeConcatenation(operands.get(i).accept(this), result);
+			}
+			return result;
+		}
+
+		@Override
+		public RegExp visit(REGEXP_INTERSECTION r) {
+			return RegExp.makeIntersection(r.exp1.accept(this), r.exp2.accept(this));
+		}
+
+		@Override
+		public RegExp visit(REGEXP_REPEAT r) {
+			RegExp e = r.getContentExpr().accept(this);
+			if (r.min == 0 && r.max == 1) {
+				return RegExp.makeOptional(e);
+			} else if (r.max == REGEXP_REPEAT.infinite) {
+				return r.min == 0 ? RegExp.makeRepeat(e) : RegExp.makeRepeat(e, r.min);
+			} else {
+				return RegExp.makeRepeat(e, r.min, r.max);
+			}
+		}
+
+		@Override
+		public RegExp visit(REGEXP_COMPLEMENT r) {
+			return RegExp.makeComplement(r.getContentExpr().accept(this));
+		}
+
+		@Override
+		public RegExp visit(REGEXP_CHAR r) {
+			return RegExp.makeChar(r.c);
+		}
+
+		@Override
+		public RegExp visit(REGEXP_CHAR_RANGE r) {
+			return RegExp.makeCharRange(r.from, r.to);
+		}
+
+		@Override
+		public RegExp visit(oosimpleexp r) {
+			return RegExp.makeString(r.s);
+		}
+
+		@Override
+		public RegExp visit(REGEXP_SPECIALCHAR r) {
+			switch (r.sc) {
+			case '.':
+				return RegExp.makeAnyChar();
+			case '#':
+				return RegExp.makeEmpty();
+			default:
+				return RegExp.makeAnyString();
+			}
+		}
+
+		@Override
+		public RegExp visit(REGEXP_AUTOMATON r) {
+			// the name is not visible from here, this rare leaf is still parsed
+			return new RegExp(ToRegexString.convertToRegexString(r));
+		}
+
+		@Override
+		public RegExp visit(REGEXP_INTERVAL r) {
+			return RegExp.makeInterval(r.min, r.max, r.digits);
+		}
+
+		@Override
+		public String getCode() {
+			return "RegExp";
+		}
+	};
+
 	// take a regex and build its objects
 	public static ooregex getOORegex(RegExp reg) {
 		Kind kind = reg.kind;
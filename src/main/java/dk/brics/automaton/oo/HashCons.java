@@ -0,0 +1,74 @@
+package dk.brics.automaton.oo;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The table of the interned ooregex: one object for each structure, so
+ * interned regexes are compared by identity and a cache on them is looked up
+ * in O(1). An object is interned after its sub expressions, so interning a
+ * mutant built on an interned regex only visits the new path from the root to
+ * the mutated node, the siblings it shares are found already interned.
+ * 
+ * The table does not keep the objects alive: an object no regex refers to is
+ * removed by the garbage collector. It is split in stripes, each one with its
+ * lock, for the threads that mutate at the same time
+ */
+public class HashCons {
+
+	private static final int STRIPES = 64;
+
+	private static final List<Map<ooregex, WeakReference<ooregex>>> stripes = new ArrayList<>(STRIPES);
+
+	static {
+		for (int i = 0; i < STRIPES; i++)
+			stripes.add(new WeakHashMap<>());
+	}
+
+	private HashCons() {
+	}
+
+	/** the interned object with the structure of r */
+	public static ooregex intern(ooregex r) {
+		if (r.interned)
+			return r;
+		ooregex n = r;
+		if (r instanceof oobinregex) {
+			oobinregex b = (oobinregex) r;
+			ooregex e1 = intern(b.exp1), e2 = intern(b.exp2);
+			if (e1 != b.exp1 || e2 != b.exp2)
+				n = oobinregex.makeBinExpression(r.getClass(), e1, e2);
+		} else if (r instanceof oounaryregex) {
+			ooregex e = intern(((oounaryregex) r).exp);
+			if (e != ((oounaryregex) r).exp)
+				n = r instanceof REGEXP_REPEAT ? REGEXP_REPEAT.sameREPEAT_Type((REGEXP_REPEAT) r, e)
+						: new REGEXP_COMPLEMENT(e);
+		}
+		int h = n.hashCode();
+		Map<ooregex, WeakReference<ooregex>> stripe = stripes.get((h ^ (h >>> 16)) & (STRIPES - 1));
+		synchronized (stripe) {
+			WeakReference<ooregex> ref = stripe.get(n);
+			ooregex interned = ref != null ? ref.get() : null;
+			if (interned == null) {
+				n.interned = true;
+				stripe.put(n, new WeakReference<>(n));
+				interned = n;
+			}
+			return interned;
+		}
+	}
+
+	/** the number of interned objects still alive */
+	public static int size() {
+		int size = 0;
+		for (Map<ooregex, WeakReference<ooregex>> stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+}
@@ -0,0 +1,43 @@
+package dk.brics.automaton.oo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * A value computed once for each interned ooregex (see HashCons), as long as
+ * the regex is alive. Keys that are not interned are not cached: their value is
+ * computed at every call. The value must not refer to its key
+ */
+public class NodeCache<V> {
+
+	private static final int STRIPES = 16;
+
+	private final List<Map<ooregex, V>> stripes = new ArrayList<>(STRIPES);
+
+	public NodeCache() {
+		for (int i = 0; i < STRIPES; i++)
+			stripes.add(new WeakHashMap<>());
+	}
+
+	public V get(ooregex r, Function<ooregex, V> compute) {
+		if (!r.interned)
+			return compute.apply(r);
+		int h = r.hashCode();
+		Map<ooregex, V> stripe = stripes.get((h ^ (h >>> 16)) & (STRIPES - 1));
+		V v;
+		synchronized (stripe) {
+			v = stripe.get(r);
+		}
+		if (v == null) {
+			// computed out of the lock, two threads can compute the same value
+			v = compute.apply(r);
+			synchronized (stripe) {
+				stripe.putIfAbsent(r, v);
+			}
+		}
+		return v;
+	}
+}
@@ -2,13 +2,24 @@ package dk.brics.automaton.oo;
 
 // 	< <identifier> >	(named automaton)	[OPTIONAL]
 public class REGEXP_AUTOMATON extends ooregex {
-	String namedAutomaton;
+	final String namedAutomaton;
 
 	public REGEXP_AUTOMATON(String s) {
+		namedAutomaton = s;
 	}
 
 	@Override
 	public <T> T accept(RegexVisitor<T> v) {
 		return v.visit(this);
 	}
+
+	@Override
+	int fieldsHash() {
+		return namedAutomaton.hashCode();
+	}
+
+	@Override
+	boolean sameFields(ooregex other) {
+		return namedAutomaton.equals(((REGEXP_AUTOMATON) other).namedAutomaton);
+	}
 }
\ No newline at end of file
@@ -3,7 +3,7 @@ package dk.brics.automaton.oo;
 /**charexp	::=	<Unicode character>	(a single non-reserved character)	
 	|	\ <Unicode character> 	(a single character)*/
 public class REGEXP_CHAR extends ooregex {
-	public char c;
+	public final char c;
 
 	public REGEXP_CHAR(char c) {
 		this.c = c;
@@ -14,6 +14,16 @@ public class REGEXP_CHAR extends ooregex {
 		return v.visit(this);
 	}
 
+	@Override
+	int fieldsHash() {
+		return c;
+	}
+
+	@Override
+	boolean sameFields(ooregex other) {
+		return c == ((REGEXP_CHAR) other).c;
+	}
+
 	/**
 	 * .	(any single character)	
 		|	#	(the empty language)	[OPTIONAL]
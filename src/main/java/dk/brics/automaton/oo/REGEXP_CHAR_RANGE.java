@@ -2,8 +2,8 @@ package dk.brics.automaton.oo;
 
 // charclass	::=	charexp - charexp	(character range, including end-points)	
 public class REGEXP_CHAR_RANGE extends ooregex {
-	public char from;
-	public char to;
+	public final char from;
+	public final char to;
 
 	public REGEXP_CHAR_RANGE(char f, char t) {
 		from = f;
@@ -16,12 +16,12 @@ public class REGEXP_CHAR_RANGE extends ooregex {
 	}
 
 	@Override
-	public boolean equals(Object obj) {
-		if (this == obj)
-			return true;
-		if (obj instanceof REGEXP_CHAR_RANGE) {
-			return this.from == ((REGEXP_CHAR_RANGE) obj).from && this.to == ((REGEXP_CHAR_RANGE) obj).to;
-		}
-		return false;
+	int fieldsHash() {
+		return 31 * from + to;
+	}
+
+	@Override
+	boolean sameFields(ooregex other) {
+		return from == ((REGEXP_CHAR_RANGE) other).from && to == ((REGEXP_CHAR_RANGE) other).to;
 	}
 }
@@ -2,7 +2,7 @@ package dk.brics.automaton.oo;
 
 // 	|	<n-m>	(numerical interval)	[OPTIONAL]
 public class REGEXP_INTERVAL extends ooregex {
-	public int digits, min, max;
+	public final int digits, min, max;
 
 	public REGEXP_INTERVAL(int digits, int min, int max) {
 		this.digits = digits;
@@ -14,4 +14,15 @@ public class REGEXP_INTERVAL extends ooregex {
 	public <T> T accept(RegexVisitor<T> v) {
 		return v.visit(this);
 	}
+
+	@Override
+	int fieldsHash() {
+		return 31 * (31 * digits + min) + max;
+	}
+
+	@Override
+	boolean sameFields(ooregex other) {
+		REGEXP_INTERVAL o = (REGEXP_INTERVAL) other;
+		return digits == o.digits && min == o.min && max == o.max;
+	}
 }
\ No newline at end of file
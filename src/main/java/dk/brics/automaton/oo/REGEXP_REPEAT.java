@@ -21,8 +21,8 @@ final public class REGEXP_REPEAT extends oounaryregex {
 	public static final int infinite = -1;
 
 	// TODO put them private (or at least with accessor)
-	public int min;
-	public int max;
+	public final int min;
+	public final int max;
 
 	// NOT in accordance with brics regex
 	// because in brics they have different kind
@@ -120,6 +120,16 @@ final public class REGEXP_REPEAT extends oounaryregex {
 		return v.visit(this);
 	}
 
+	@Override
+	int fieldsHash() {
+		return 31 * (31 * super.fieldsHash() + min) + max;
+	}
+
+	@Override
+	boolean sameFields(ooregex other) {
+		return min == ((REGEXP_REPEAT) other).min && max == ((REGEXP_REPEAT) other).max && super.sameFields(other);
+	}
+
 	// return the quantifier as a string (like ?, + , {3}...
 	public String getQuantifier() {
 		// check if it is optional
@@ -13,7 +13,7 @@ package dk.brics.automaton.oo;
  */
 public class REGEXP_SPECIALCHAR extends ooregex {
 	// special char
-	public char sc;
+	public final char sc;
 
 	public REGEXP_SPECIALCHAR(char c) {
 		// REGEXP_ANYCHAR:
@@ -33,4 +33,14 @@ public class REGEXP_SPECIALCHAR extends ooregex {
 	public <T> T accept(RegexVisitor<T> v) {
 		return v.visit(this);
 	}
+
+	@Override
+	int fieldsHash() {
+		return sc;
+	}
+
+	@Override
+	boolean sameFields(ooregex other) {
+		return sc == ((REGEXP_SPECIALCHAR) other).sc;
+	}
 }
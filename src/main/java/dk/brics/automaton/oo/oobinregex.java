@@ -8,14 +8,24 @@ import java.util.List;
  * all the regexes with two arguments
  */
 public abstract class oobinregex extends ooregex {
-	public ooregex exp1;
-	public ooregex exp2;
+	public final ooregex exp1;
+	public final ooregex exp2;
 
 	oobinregex(ooregex ooRegex, ooregex ooRegex2) {
 		exp1 = ooRegex;
 		exp2 = ooRegex2;
 	}
 
+	@Override
+	int fieldsHash() {
+		return 31 * exp1.hashCode() + exp2.hashCode();
+	}
+
+	@Override
+	boolean sameFields(ooregex other) {
+		return exp1.equals(((oobinregex) other).exp1) && exp2.equals(((oobinregex) other).exp2);
+	}
+
 	public static <T extends oobinregex> T makeBinExpression(Class<? extends ooregex> clazz, ooregex e1, ooregex e2) {
 		if (clazz == REGEXP_CONCATENATION.class) {
 			return (T) new REGEXP_CONCATENATION(e1, e2);
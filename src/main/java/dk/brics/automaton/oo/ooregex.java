@@ -1,10 +1,52 @@
 package dk.brics.automaton.oo;
 
 // OO representation of the the regex (useful to use visitor pattern)
+// The objects are immutable: equals and hashCode compare the structure, the
+// hash is computed once. Interned objects (see HashCons) are equal only if they
+// are the same object
 public abstract class ooregex implements VisitableRegex {
 
+	// 0 until computed
+	private int hash;
+	// this is the object kept by HashCons for its structure
+	volatile boolean interned;
+
 	@Override
 	final public String toString() {
 		return ToRegexString.convertToRegexString(this);
 	}
+
+	@Override
+	final public int hashCode() {
+		int h = hash;
+		if (h == 0) {
+			h = 31 * getClass().getName().hashCode() + fieldsHash();
+			if (h == 0)
+				h = 1;
+			hash = h;
+		}
+		return h;
+	}
+
+	@Override
+	final public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof ooregex))
+			return false;
+		ooregex other = (ooregex) obj;
+		if (interned && other.interned)
+			return false;
+		return getClass() == other.getClass() && hashCode() == other.hashCode() && sameFields(other);
+	}
+
+	public boolean isInterned() {
+		return interned;
+	}
+
+	// hash of the fields and of the sub expressions
+	abstract int fieldsHash();
+
+	// other has the same class of this
+	abstract boolean sameFields(ooregex other);
 }
@@ -13,7 +13,7 @@ package dk.brics.automaton.oo;
 
 // represents a STRING that matches with the STRING
 public class oosimpleexp extends ooregex {
-	public String s;
+	public final String s;
 
 	public oosimpleexp(String s) {
 		/* troppo forti, potrei avere una stringa che  solo un punto, basta che usi \.
@@ -31,4 +31,14 @@ public class oosimpleexp extends ooregex {
 	public <T> T accept(RegexVisitor<T> v) {
 		return v.visit(this);
 	}
+
+	@Override
+	int fieldsHash() {
+		return s.hashCode();
+	}
+
+	@Override
+	boolean sameFields(ooregex other) {
+		return s.equals(((oosimpleexp) other).s);
+	}
 }
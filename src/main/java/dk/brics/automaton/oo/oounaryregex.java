@@ -1,12 +1,22 @@
 package dk.brics.automaton.oo;
 
 public abstract class oounaryregex extends ooregex {
-	protected ooregex exp;
+	protected final ooregex exp;
 
 	protected oounaryregex(ooregex e) {
 		exp = e;
 	}
 
+	@Override
+	int fieldsHash() {
+		return exp.hashCode();
+	}
+
+	@Override
+	boolean sameFields(ooregex other) {
+		return exp.equals(((oounaryregex) other).exp);
+	}
+
 	public ooregex getContentExpr() {
 		return exp;
 	}
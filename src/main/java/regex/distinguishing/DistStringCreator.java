@@ -264,6 +264,11 @@ public class DistStringCreator {
 	/** The rnd. */
 	private static Random rnd = new Random();
 
+	/** makes the random examples reproducible */
+	public static void setSeed(long seed) {
+		rnd = new Random(seed);
+	}
+
 	// returns an example for a
 	// it tries to build a meaningful/readable example
 	// use of getStrings and then search the most readable is unfeasible
@@ -325,7 +330,7 @@ public class DistStringCreator {
 			return sb.toString();
 		} else {
 			ArrayList<Transition> trans = new ArrayList<Transition>(s.getTransitions());
-			Collections.shuffle(trans);
+			Collections.shuffle(trans, rnd);
 			for (Transition t : trans) {
 				if (!visited.contains(t.getDest())) {
 					test.add(t);
@@ -44,8 +44,8 @@ public class BasicDSSetgenerator extends DSSetGenerator {
 			MutatedRegExp mutant = mutants.next();
 			// generate a distinguishing string
 			// DistinguishingString ds = DistStringCreator.getDS(regex,
-			// mutant.mutatedRexExp, DSgenPolicy.RANDOM);
-			DistinguishingString ds = DistStringCreator.getDS(regexAut, mutant.mutatedRexExp.toAutomaton(),
+			// mutant.regExp(), DSgenPolicy.RANDOM);
+			DistinguishingString ds = DistStringCreator.getDS(regexAut, mutant.regExp().toAutomaton(),
 					policy);
 			if (ds != null) {
 				result.add(ds, Collections.singletonList(mutant));
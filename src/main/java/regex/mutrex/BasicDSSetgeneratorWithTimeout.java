@@ -29,7 +29,7 @@ public class BasicDSSetgeneratorWithTimeout extends DSSetGenerator {
 	public void addStringsToDSSet(DSSet result, RegExp regex, Iterator<MutatedRegExp> mutants) {
 		while (mutants.hasNext()) {
 			MutatedRegExp mutant = mutants.next();
-			Generator g = new Generator(mutant.mutatedRexExp, regex, this);
+			Generator g = new Generator(mutant.regExp(), regex, this);
 			g.start();
 			try {
 				g.join(TIMEOUT);
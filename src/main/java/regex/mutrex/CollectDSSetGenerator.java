@@ -28,7 +28,7 @@ abstract class CollectDSSetGenerator extends DSSetGenerator {
 		nextMut: while (mutants.hasNext()) {
 			MutatedRegExp mutant = mutants.next();
 			sortDAs(das);
-			RegexWAutomata m = new RegexWAutomata(mutant.mutatedRexExp);
+			RegexWAutomata m = new RegexWAutomata(mutant.regExp());
 			Iterator<DistinguishingAutomaton> dasIt = das.iterator();
 			while (dasIt.hasNext()) {
 				DistinguishingAutomaton da = dasIt.next();
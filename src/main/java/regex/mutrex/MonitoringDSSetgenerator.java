@@ -30,7 +30,7 @@ public class MonitoringDSSetgenerator extends DSSetGenerator {
 		mutLoop: while (mutants.hasNext()) {
 			MutatedRegExp mutant = mutants.next();
 			// monitoring
-			Automaton mutAutom = mutant.mutatedRexExp.toAutomaton();
+			Automaton mutAutom = mutant.regExp().toAutomaton();
 			// check if there exists a ds in results that covers this mutant
 			for (DistinguishingString ds : result) {
 				String dsStr = ds.getDs();
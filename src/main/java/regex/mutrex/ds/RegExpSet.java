@@ -37,12 +37,12 @@ public class RegExpSet extends HashSet<RegExp> {
 
 	public void addAllWD(List<MutatedRegExp> mutants) {
 		for (MutatedRegExp m : mutants) {
-			add(m.mutatedRexExp);
+			add(m.regExp());
 			// add
-			List<String> l = mutantDescription.get(m.mutatedRexExp);
+			List<String> l = mutantDescription.get(m.regExp());
 			if (l == null) {
 				l = new ArrayList<>();
-				mutantDescription.put(m.mutatedRexExp, l);
+				mutantDescription.put(m.regExp(), l);
 			}
 			l.add(m.description);
 		}
@@ -20,7 +20,7 @@ public class MutantForDasParallelCollector {
 	String description;
 
 	public MutantForDasParallelCollector(MutatedRegExp mutatedRegExp) {
-		this.mutant = new RegexWAutomata(mutatedRegExp.mutatedRexExp);
+		this.mutant = new RegexWAutomata(mutatedRegExp.regExp());
 		visited = new HashSet<DistinguishingAutomatonTh>();
 		description = mutatedRegExp.description;
 	}
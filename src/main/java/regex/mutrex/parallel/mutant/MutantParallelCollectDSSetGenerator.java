@@ -163,7 +163,7 @@ class MutantForMutParallelCollector {
 	String description;
 
 	public MutantForMutParallelCollector(MutatedRegExp mutatedRegExp) {
-		this.mutant = new RegexWAutomata(mutatedRegExp.mutatedRexExp);
+		this.mutant = new RegexWAutomata(mutatedRegExp.regExp());
 		visited = new HashSet<DistinguishingAutomatonClass>();
 		description = mutatedRegExp.description;
 	}
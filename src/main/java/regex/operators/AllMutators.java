@@ -1,13 +1,18 @@
 package regex.operators;
 
 import dk.brics.automaton.RegExp;
+import dk.brics.automaton.oo.ooregex;
 import regex.utils.JoinedIterator;
 import regex.utils.JoinedRandomIterator;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
 
 public class AllMutators extends RegexMutator {
 	public static AllMutators mutator = new AllMutators();
@@ -60,6 +65,123 @@ public class AllMutators extends RegexMutator {
 		return joinedRandomIterator;
 	}
 
+	/**
+	 * at most k mutations drawn uniformly and without replacement among the
+	 * ones of all the mutators. Only the drawn mutations are built
+	 */
+	public Iterator<MutatedRegExp> mutateSample(RegExp re, int k, SplittableRandom rnd) {
+		final List<RegexMutator> mutators = new ArrayList<>(allMutators);
+		final List<List<ooregex>> lists = new ArrayList<>();
+		// the mutations of mutator i have the indexes [ends[i-1], ends[i])
+		final int[] ends = new int[mutators.size()];
+		int total = 0;
+		for (int i = 0; i < mutators.size(); i++) {
+			List<ooregex> l = mutators.get(i).mutationList(re);
+			lists.add(l);
+			total += l.size();
+			ends[i] = total;
+		}
+		final int size = total;
+		final int n = Math.min(k, size);
+		return new Iterator<MutatedRegExp>() {
+			// Fisher-Yates shuffle of the indexes that remembers only the
+			// swapped positions
+			private Map<Integer, Integer> swapped = new HashMap<>();
+			private int drawn = 0;
+
+			@Override
+			public boolean hasNext() {
+				return drawn < n;
+			}
+
+			@Override
+			public MutatedRegExp next() {
+				if (drawn >= n)
+					throw new NoSuchElementException();
+				int j = drawn + rnd.nextInt(size - drawn);
+				int index = swapped.getOrDefault(j, j);
+				swapped.put(j, swapped.getOrDefault(drawn, drawn));
+				drawn++;
+				int m = 0;
+				while (index >= ends[m])
+					m++;
+				ooregex o = lists.get(m).get(m == 0 ? index : index - ends[m - 1]);
+				return new MutatedRegExp(mutators.get(m).getCode(), o);
+			}
+		};
+	}
+
+	/**
+	 * at most k mutations drawn without replacement, each draw takes a mutator
+	 * with probability proportional to its share (among the ones with
+	 * mutations left) and one of its mutations at random. Only the drawn
+	 * mutations are built
+	 */
+	public Iterator<MutatedRegExp> mutateSample(RegExp re, int k, SplittableRandom rnd, Map<String, Double> shares) {
+		final List<RegexMutator> mutators = new ArrayList<>(allMutators);
+		final List<List<ooregex>> lists = new ArrayList<>();
+		final double[] weights = new double[mutators.size()];
+		// the mutations not drawn yet of mutator i
+		final int[] left = new int[mutators.size()];
+		int total = 0;
+		for (int i = 0; i < mutators.size(); i++) {
+			List<ooregex> l = mutators.get(i).mutationList(re);
+			lists.add(l);
+			left[i] = l.size();
+			weights[i] = shares.getOrDefault(mutators.get(i).getCode(), 0.0);
+			total += l.size();
+		}
+		final int n = Math.min(k, total);
+		return new Iterator<MutatedRegExp>() {
+			// a Fisher-Yates shuffle for each mutator, as in the uniform sample
+			private List<Map<Integer, Integer>> swapped = new ArrayList<>();
+			private int drawn = 0;
+
+			{
+				for (int i = 0; i < mutators.size(); i++)
+					swapped.add(new HashMap<>());
+			}
+
+			@Override
+			public boolean hasNext() {
+				return drawn < n;
+			}
+
+			@Override
+			public MutatedRegExp next() {
+				if (drawn >= n)
+					throw new NoSuchElementException();
+				double sum = 0;
+				int nLeft = 0;
+				for (int i = 0; i < left.length; i++) {
+					if (left[i] > 0) {
+						sum += weights[i];
+						nLeft += left[i];
+					}
+				}
+				// without shares for the mutators left, every mutation left has the same probability
+				double t = rnd.nextDouble() * (sum > 0 ? sum : nLeft);
+				int m = -1;
+				for (int i = 0; i < left.length; i++) {
+					if (left[i] > 0 && (sum == 0 || weights[i] > 0)) {
+						m = i;
+						t -= sum > 0 ? weights[i] : left[i];
+						if (t < 0)
+							break;
+					}
+				}
+				int first = lists.get(m).size() - left[m];
+				int j = first + rnd.nextInt(left[m]);
+				Map<Integer, Integer> s = swapped.get(m);
+				int index = s.getOrDefault(j, j);
+				s.put(j, s.getOrDefault(first, first));
+				left[m]--;
+				drawn++;
+				return new MutatedRegExp(mutators.get(m).getCode(), lists.get(m).get(index));
+			}
+		};
+	}
+
 	private static void add(RegexMutator mutator) {
 		allMutators.add(mutator);
 		definedMutators.add(mutator);
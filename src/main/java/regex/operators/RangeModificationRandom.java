@@ -18,13 +18,19 @@ import java.util.SplittableRandom;
 
 public class RangeModificationRandom extends RegexMutator {
 
-    private static SplittableRandom rnd = new SplittableRandom();
+    // every thread draws from its own generator, that an engine can replace before each mutation
+    private static ThreadLocal<SplittableRandom> rnd = ThreadLocal.withInitial(SplittableRandom::new);
 	public static RangeModificationRandom mutator = new RangeModificationRandom();
 
 	private RangeModificationRandom() {
 		super(new RangeModificationVisitor());
 	}
 
+	/** the generator used by the next mutations done by the calling thread */
+	public static void setRandom(SplittableRandom random) {
+		rnd.set(random);
+	}
+
 	static class RangeModificationVisitor extends RegexVisitorAdapterList {
 
 		@Override
@@ -44,23 +50,23 @@ public class RangeModificationRandom extends RegexMutator {
 		private char extend(char c, boolean to) {
 			if (c >= 'a' && c <= 'z' && ((to && c < 'z') || (!to && c > 'a'))) {
 			    if (to) {
-                    return (char) (c + rnd.nextInt(1 + ('z' - c)));
+                    return (char) (c + rnd.get().nextInt(1 + ('z' - c)));
                 } else {
-                    return (char) ('a' + rnd.nextInt(c - 'a'));
+                    return (char) ('a' + rnd.get().nextInt(c - 'a'));
                 }
             }
             if (c >= 'A' && c <= 'Z' && ((to && c < 'Z') || (!to && c > 'A'))) {
                 if (to) {
-                    return (char) (c + rnd.nextInt(1 + ('Z' - c)));
+                    return (char) (c + rnd.get().nextInt(1 + ('Z' - c)));
                 } else {
-                    return (char) ('A' + rnd.nextInt(c - 'A'));
+                    return (char) ('A' + rnd.get().nextInt(c - 'A'));
                 }
             }
             if (c >= '0' && c <= '9' && ((to && c < '9') || (!to && c > '0'))) {
                 if (to) {
-                    return (char) (c + rnd.nextInt(1 + ('9' - c)));
+                    return (char) (c + rnd.get().nextInt(1 + ('9' - c)));
                 } else {
-                    return (char) ('0' + rnd.nextInt(c - '0'));
+                    return (char) ('0' + rnd.get().nextInt(c - '0'));
                 }
             }
 			return 0;
@@ -69,23 +75,23 @@ public class RangeModificationRandom extends RegexMutator {
         private char reduce(char from, char to, boolean t) {
             if (from >= 'a' && from <= 'z' && to >= 'a' && to <= 'z' && to > from) {
                 if (t) {
-                    return (char) (to - (1 + rnd.nextInt(to - from)));
+                    return (char) (to - (1 + rnd.get().nextInt(to - from)));
                 } else {
-                    return (char) (from + (1 + rnd.nextInt(to - from)));
+                    return (char) (from + (1 + rnd.get().nextInt(to - from)));
                 }
             }
             if (from >= 'A' && from <= 'Z' && to >= 'A' && to <= 'Z' && to > from) {
                 if (t) {
-                    return (char) (to - (1 + rnd.nextInt(to - from)));
+                    return (char) (to - (1 + rnd.get().nextInt(to - from)));
                 } else {
-                    return (char) (from + (1 + rnd.nextInt(to - from)));
+                    return (char) (from + (1 + rnd.get().nextInt(to - from)));
                 }
             }
             if (from >= '0' && from <= '9' && to >= '0' && to <= '9' && to > from) {
                 if (t) {
-                    return (char) (to - (1 + rnd.nextInt(to - from)));
+                    return (char) (to - (1 + rnd.get().nextInt(to - from)));
                 } else {
-                    return (char) (from + (1 + rnd.nextInt(to - from)));
+                    return (char) (from + (1 + rnd.get().nextInt(to - from)));
                 }
             }
             return 0;
@@ -1,14 +1,18 @@
 package regex.operators;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 import dk.brics.automaton.OORegexConverter;
 import dk.brics.automaton.RegExp;
+import dk.brics.automaton.oo.HashCons;
+import dk.brics.automaton.oo.NodeCache;
 import dk.brics.automaton.oo.RegexVisitor;
 import dk.brics.automaton.oo.ToSimpleString;
 import dk.brics.automaton.oo.ooregex;
+import regex.utils.RegexFlags;
 
 public abstract class RegexMutator {
 	private RegexVisitor<List<ooregex>> mutator;
@@ -19,7 +23,7 @@ public abstract class RegexMutator {
 
 	/** given a regex, it builds all the possible mutations */
 	public Iterator<MutatedRegExp> mutate(RegExp re) {
-		final Iterator<ooregex> resultsOO = OORegexConverter.getOORegex(re).accept(mutator).iterator();
+		final Iterator<ooregex> resultsOO = mutationList(re).iterator();
 		return new Iterator<MutatedRegExp>() {
 
 			@Override
@@ -29,17 +33,24 @@ public abstract class RegexMutator {
 
 			@Override
 			public MutatedRegExp next() {
-				RegExp s = OORegexConverter.convertBackToRegex(resultsOO.next());
 				// return new
 				// MutatedRegExp(mutator.getClass().getEnclosingClass().getSimpleName(),
 				// new RegExp(s));
-				return new MutatedRegExp(mutator.getCode(), s);
+				return new MutatedRegExp(mutator.getCode(), resultsOO.next());
 			}
 		};
 	}
 
+	/**
+	 * the mutations of the regex, each one is built when it is read. The regex
+	 * is interned, so the mutations share its interned sub expressions
+	 */
+	List<ooregex> mutationList(RegExp re) {
+		return HashCons.intern(OORegexConverter.getOORegex(re)).accept(mutator);
+	}
+
 	public Iterator<MutatedRegExp> mutateRandom(RegExp re) {
-		List<ooregex> results = OORegexConverter.getOORegex(re).accept(mutator);
+		List<ooregex> results = new ArrayList<>(mutationList(re));
 		Collections.shuffle(results);
 		final Iterator<ooregex> resultsOO = results.iterator();
 		return new Iterator<MutatedRegExp>() {
@@ -51,28 +62,62 @@ public abstract class RegexMutator {
 
 			@Override
 			public MutatedRegExp next() {
-				RegExp s = OORegexConverter.convertBackToRegex(resultsOO.next());
 				// return new
 				// MutatedRegExp(mutator.getClass().getEnclosingClass().getSimpleName(),
 				// new RegExp(s));
-				return new MutatedRegExp(mutator.getCode(), s);
+				return new MutatedRegExp(mutator.getCode(), resultsOO.next());
 			}
 		};
 	}
 
 	static public class MutatedRegExp {// extends RegExp{
+		// the string of each mutant still alive, a mutant produced again (a
+		// duplicate) does not build its RegExp to be recognized
+		private static final NodeCache<String> strings = new NodeCache<>();
+
 		public String description;
-		public RegExp mutatedRexExp;
+		/** the mutant as interned objects, its automaton is compiled from them */
+		public ooregex tree;
+		/** the RegexFlags of the mutant */
+		public int flags;
+		private RegExp mutatedRexExp;
+		private String string;
 
-		public MutatedRegExp(String simpleName, RegExp regex) {
+		public MutatedRegExp(String simpleName, ooregex regex) {
 			// super(regex);
 			description = simpleName;
+			tree = HashCons.intern(regex);
+			flags = RegexFlags.of(tree);
+		}
+
+		public MutatedRegExp(String simpleName, RegExp regex) {
+			description = simpleName;
+			tree = HashCons.intern(OORegexConverter.getOORegex(regex));
 			mutatedRexExp = regex;
+			flags = RegexFlags.of(tree);
+		}
+
+		/** the mutant as a RegExp, built the first time it is asked */
+		public RegExp regExp() {
+			if (mutatedRexExp == null)
+				mutatedRexExp = OORegexConverter.convertBackToRegex(tree);
+			return mutatedRexExp;
+		}
+
+		public boolean has(int flag) {
+			return (flags & flag) != 0;
+		}
+
+		/** regExp().toString(), built once for each tree */
+		public String string() {
+			if (string == null)
+				string = strings.get(tree, t -> regExp().toString());
+			return string;
 		}
 
 		@Override
 		public String toString() {
-			return description + ": " + ToSimpleString.convertToReadableString(mutatedRexExp);
+			return description + ": " + ToSimpleString.convertToReadableString(regExp());
 		}
 	}
 
@@ -1,8 +1,9 @@
 package regex.operators;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 import dk.brics.automaton.oo.REGEXP_AUTOMATON;
 import dk.brics.automaton.oo.REGEXP_CHAR;
@@ -22,7 +23,9 @@ import dk.brics.automaton.oo.oosimpleexp;
 
 /**
  * returns the list of mutations. If an expression has no mutations, then the
- * empty list is returned
+ * empty list is returned. The lists built here are read-only views: a mutation
+ * is built only when it is read, so a caller that samples a few of them does
+ * not pay for all of them
  * 
  * @author garganti
  *
@@ -53,24 +56,26 @@ class RegexVisitorAdapterList implements RegexVisitor<List<ooregex>> {
 		// if both have not mutated the content
 		if (m1.isEmpty() && m2.isEmpty())
 			return m1;
-		List<ooregex> result = new ArrayList<>();
-		for (ooregex r1 : m1) {
-			result.add(oobinregex.makeBinExpression(clazz, r1, r.exp2));
-		}
-		for (ooregex r2 : m2) {
-			result.add(oobinregex.makeBinExpression(clazz, r.exp1, r2));
-		}
-		return result;
+		// first the mutations of exp1, then the ones of exp2
+		return new AbstractList<ooregex>() {
+			@Override
+			public ooregex get(int index) {
+				if (index < m1.size())
+					return oobinregex.makeBinExpression(clazz, m1.get(index), r.exp2);
+				return oobinregex.makeBinExpression(clazz, r.exp1, m2.get(index - m1.size()));
+			}
+
+			@Override
+			public int size() {
+				return m1.size() + m2.size();
+			}
+		};
 	}
 
 	@Override
 	public List<ooregex> visit(REGEXP_REPEAT r) {
 		List<ooregex> m1 = r.getContentExpr().accept(this);
-		List<ooregex> result = new ArrayList<ooregex>();
-		for (ooregex r1 : m1) {
-			result.add(REGEXP_REPEAT.sameREPEAT_Type(r,r1));
-		}
-		return result;
+		return map(m1, r1 -> REGEXP_REPEAT.sameREPEAT_Type(r, r1));
 	}
 
 	@Override
@@ -78,11 +83,22 @@ class RegexVisitorAdapterList implements RegexVisitor<List<ooregex>> {
 		List<ooregex> result = r.getContentExpr().accept(this);
 		if (result.isEmpty())
 			return Collections.EMPTY_LIST;
-		List<ooregex> fresult = new ArrayList<>();
-		for (ooregex o : result) {
-			fresult.add(new REGEXP_COMPLEMENT(o));
-		}
-		return fresult;
+		return map(result, REGEXP_COMPLEMENT::new);
+	}
+
+	/** the view of list with f applied to every element when it is read */
+	static List<ooregex> map(List<ooregex> list, Function<ooregex, ooregex> f) {
+		return new AbstractList<ooregex>() {
+			@Override
+			public ooregex get(int index) {
+				return f.apply(list.get(index));
+			}
+
+			@Override
+			public int size() {
+				return list.size();
+			}
+		};
 	}
 
 	@Override
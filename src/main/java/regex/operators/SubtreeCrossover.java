@@ -0,0 +1,120 @@
+package regex.operators;
+
+import dk.brics.automaton.OORegexConverter;
+import dk.brics.automaton.RegExp;
+import dk.brics.automaton.oo.REGEXP_COMPLEMENT;
+import dk.brics.automaton.oo.REGEXP_CONCATENATION;
+import dk.brics.automaton.oo.REGEXP_REPEAT;
+import dk.brics.automaton.oo.REGEXP_UNION;
+import dk.brics.automaton.oo.oobinregex;
+import dk.brics.automaton.oo.ooregex;
+import dk.brics.automaton.oo.oounaryregex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * crossover between the trees of two regexes. A child is either a prefix of
+ * the concatenation of the first parent followed by a suffix of the
+ * concatenation of the second one, or the first parent with an operand of one
+ * of its concatenations (unions) replaced by an operand of a concatenation
+ * (union) of the second one
+ */
+public class SubtreeCrossover {
+
+	public static final String CODE = "SX";
+	// the children of a pair of parents
+	public static final int CHILDREN = 8;
+
+	// an operand of a concatenation or of a union, with the kind of node it belongs to
+	private static class Slot {
+		ooregex node;
+		Class<?> parent;
+
+		Slot(ooregex node, Class<?> parent) {
+			this.node = node;
+			this.parent = parent;
+		}
+	}
+
+	private SubtreeCrossover() {
+	}
+
+	/** n children of a and b, all the random choices are taken from rnd */
+	public static List<RegexMutator.MutatedRegExp> cross(RegExp a, RegExp b, int n, SplittableRandom rnd) {
+		ooregex treeA = OORegexConverter.getOORegex(a);
+		ooregex treeB = OORegexConverter.getOORegex(b);
+		List<ooregex> partsA = oobinregex.split(treeA, REGEXP_CONCATENATION.class);
+		List<ooregex> partsB = oobinregex.split(treeB, REGEXP_CONCATENATION.class);
+		boolean onePoint = partsA.size() > 1 && partsB.size() > 1;
+		List<Slot> slotsA = new ArrayList<>(), slotsB = new ArrayList<>();
+		slots(treeA, slotsA);
+		slots(treeB, slotsB);
+		// only the operands of a that have an operand of the same kind of node in b can be replaced
+		List<Slot> targets = new ArrayList<>();
+		for (Slot s : slotsA) {
+			if (slotsB.stream().anyMatch(d -> d.parent == s.parent)) {
+				targets.add(s);
+			}
+		}
+		List<RegexMutator.MutatedRegExp> children = new ArrayList<>();
+		for (int i = 0; i < n && (onePoint || !targets.isEmpty()); i++) {
+			ooregex child;
+			if (onePoint && (targets.isEmpty() || rnd.nextBoolean())) {
+				List<ooregex> parts = new ArrayList<>(partsA.subList(0, 1 + rnd.nextInt(partsA.size() - 1)));
+				parts.addAll(partsB.subList(1 + rnd.nextInt(partsB.size() - 1), partsB.size()));
+				child = oobinregex.makeBinExpression(REGEXP_CONCATENATION.class, parts);
+			} else {
+				Slot target = targets.get(rnd.nextInt(targets.size()));
+				List<Slot> donors = new ArrayList<>();
+				for (Slot d : slotsB) {
+					if (d.parent == target.parent) {
+						donors.add(d);
+					}
+				}
+				child = replace(treeA, target.node, donors.get(rnd.nextInt(donors.size())).node);
+			}
+			children.add(new RegexMutator.MutatedRegExp(CODE, child));
+		}
+		return children;
+	}
+
+	private static void slots(ooregex r, List<Slot> slots) {
+		if (r instanceof oobinregex) {
+			oobinregex b = (oobinregex) r;
+			if (r instanceof REGEXP_CONCATENATION || r instanceof REGEXP_UNION) {
+				slots.add(new Slot(b.exp1, r.getClass()));
+				slots.add(new Slot(b.exp2, r.getClass()));
+			}
+			slots(b.exp1, slots);
+			slots(b.exp2, slots);
+		} else if (r instanceof oounaryregex) {
+			slots(((oounaryregex) r).getContentExpr(), slots);
+		}
+	}
+
+	// a copy of the tree with the node target (the same object) replaced by with
+	private static ooregex replace(ooregex r, ooregex target, ooregex with) {
+		if (r == target) {
+			return with;
+		}
+		if (r instanceof oobinregex) {
+			oobinregex b = (oobinregex) r;
+			ooregex e1 = replace(b.exp1, target, with);
+			ooregex e2 = replace(b.exp2, target, with);
+			return e1 == b.exp1 && e2 == b.exp2 ? r : oobinregex.makeBinExpression(r.getClass(), e1, e2);
+		}
+		if (r instanceof REGEXP_REPEAT) {
+			REGEXP_REPEAT rep = (REGEXP_REPEAT) r;
+			ooregex content = replace(rep.getContentExpr(), target, with);
+			return content == rep.getContentExpr() ? r : REGEXP_REPEAT.sameREPEAT_Type(rep, content);
+		}
+		if (r instanceof REGEXP_COMPLEMENT) {
+			REGEXP_COMPLEMENT c = (REGEXP_COMPLEMENT) r;
+			ooregex content = replace(c.getContentExpr(), target, with);
+			return content == c.getContentExpr() ? r : new REGEXP_COMPLEMENT(content);
+		}
+		return r;
+	}
+}
@@ -40,10 +40,15 @@ import java.util.Random;
 public class JoinedRandomIterator<T> implements Iterator<T> {
 	// wrapped iterators
 	private List<Iterator<T>> iterators;
-	Random rnd = new Random();
+	Random rnd;
 
 	public JoinedRandomIterator(List<Iterator<T>> iterators) {
+		this(iterators, new Random());
+	}
+
+	public JoinedRandomIterator(List<Iterator<T>> iterators, Random rnd) {
 		this.iterators = new ArrayList<>(iterators);
+		this.rnd = rnd;
 	}
 
 	public JoinedRandomIterator(Iterator<T>... iterators) {
@@ -0,0 +1,153 @@
+package regex.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.BasicAutomata;
+import dk.brics.automaton.BasicOperations;
+import dk.brics.automaton.oo.REGEXP_AUTOMATON;
+import dk.brics.automaton.oo.REGEXP_CHAR;
+import dk.brics.automaton.oo.REGEXP_CHAR_RANGE;
+import dk.brics.automaton.oo.REGEXP_COMPLEMENT;
+import dk.brics.automaton.oo.REGEXP_CONCATENATION;
+import dk.brics.automaton.oo.REGEXP_INTERSECTION;
+import dk.brics.automaton.oo.REGEXP_INTERVAL;
+import dk.brics.automaton.oo.REGEXP_REPEAT;
+import dk.brics.automaton.oo.REGEXP_SPECIALCHAR;
+import dk.brics.automaton.oo.REGEXP_UNION;
+import dk.brics.automaton.oo.NodeCache;
+import dk.brics.automaton.oo.RegexVisitor;
+import dk.brics.automaton.oo.oobinregex;
+import dk.brics.automaton.oo.ooregex;
+import dk.brics.automaton.oo.oosimpleexp;
+import dk.brics.automaton.oo.oounaryregex;
+
+/**
+ * builds the automaton of an ooregex directly from its tree, as
+ * RegExp.toAutomaton does from the RegExp: the operands of a chain of unions
+ * (concatenations) are joined at once and every composite automaton is
+ * minimized. Named automata are not supported, as in toAutomaton without a
+ * map.
+ * 
+ * The automata of the interned composite sub expressions are kept while the
+ * sub expressions are alive, so a mutant compiles only the path it does not
+ * share with its parent. Some operations modify their operands (repeat expands
+ * a singleton), so a kept automaton is cloned every time it is used: a clone
+ * only reads it and costs less than compiling and minimizing it again. The
+ * automaton of the whole regex is not kept, the caller can modify it
+ */
+public class OOAutomatonCompiler implements RegexVisitor<Automaton> {
+
+	private static final OOAutomatonCompiler compiler = new OOAutomatonCompiler();
+
+	private static final NodeCache<Automaton> automata = new NodeCache<>();
+
+	private OOAutomatonCompiler() {
+	}
+
+	public static Automaton compile(ooregex regex) {
+		return regex.accept(compiler);
+	}
+
+	// the automaton of a sub expression, kept if it is interned and composite
+	private Automaton sub(ooregex r) {
+		if (r instanceof oobinregex || r instanceof oounaryregex)
+			return automata.get(r, o -> o.accept(this)).clone();
+		return r.accept(this);
+	}
+
+	@Override
+	public Automaton visit(REGEXP_UNION r) {
+		Automaton a = BasicOperations.union(operands(r, REGEXP_UNION.class));
+		a.minimize();
+		return a;
+	}
+
+	@Override
+	public Automaton visit(REGEXP_CONCATENATION r) {
+		Automaton a = BasicOperations.concatenate(operands(r, REGEXP_CONCATENATION.class));
+		a.minimize();
+		return a;
+	}
+
+	private List<Automaton> operands(oobinregex r, Class<? extends oobinregex> kind) {
+		List<Automaton> operands = new ArrayList<>();
+		for (ooregex o : oobinregex.split(r, kind)) {
+			operands.add(sub(o));
+		}
+		return operands;
+	}
+
+	@Override
+	public Automaton visit(REGEXP_INTERSECTION r) {
+		Automaton a = sub(r.exp1).intersection(sub(r.exp2));
+		a.minimize();
+		return a;
+	}
+
+	@Override
+	public Automaton visit(REGEXP_REPEAT r) {
+		Automaton content = sub(r.getContentExpr()), a;
+		if (r.max == REGEXP_REPEAT.infinite) {
+			a = r.min == 0 ? content.repeat() : content.repeat(r.min);
+		} else if (r.min == 0 && r.max == 1) {
+			a = content.optional();
+		} else {
+			a = content.repeat(r.min, r.max);
+		}
+		a.minimize();
+		return a;
+	}
+
+	@Override
+	public Automaton visit(REGEXP_COMPLEMENT r) {
+		Automaton a = sub(r.getContentExpr()).complement();
+		a.minimize();
+		return a;
+	}
+
+	@Override
+	public Automaton visit(REGEXP_CHAR r) {
+		return BasicAutomata.makeChar(r.c);
+	}
+
+	@Override
+	public Automaton visit(REGEXP_CHAR_RANGE r) {
+		return BasicAutomata.makeCharRange(r.from, r.to);
+	}
+
+	@Override
+	public Automaton visit(oosimpleexp r) {
+		return BasicAutomata.makeString(r.s);
+	}
+
+	@Override
+	public Automaton visit(REGEXP_SPECIALCHAR r) {
+		switch (r.sc) {
+		case '.':
+			return BasicAutomata.makeAnyChar();
+		case '#':
+			return BasicAutomata.makeEmpty();
+		case '@':
+			return BasicAutomata.makeAnyString();
+		default:
+			throw new IllegalArgumentException("unknown special char " + r.sc);
+		}
+	}
+
+	@Override
+	public Automaton visit(REGEXP_AUTOMATON r) {
+		throw new IllegalArgumentException("named automaton " + r + " not supported");
+	}
+
+	@Override
+	public Automaton visit(REGEXP_INTERVAL r) {
+		return BasicAutomata.makeInterval(r.min, r.max, r.digits);
+	}
+
+	@Override
+	public String getCode() {
+		return "AC";
+	}
+}
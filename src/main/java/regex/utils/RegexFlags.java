@@ -0,0 +1,126 @@
+package regex.utils;
+
+import dk.brics.automaton.oo.REGEXP_AUTOMATON;
+import dk.brics.automaton.oo.REGEXP_CHAR;
+import dk.brics.automaton.oo.REGEXP_CHAR_RANGE;
+import dk.brics.automaton.oo.REGEXP_COMPLEMENT;
+import dk.brics.automaton.oo.REGEXP_CONCATENATION;
+import dk.brics.automaton.oo.REGEXP_INTERSECTION;
+import dk.brics.automaton.oo.REGEXP_INTERVAL;
+import dk.brics.automaton.oo.REGEXP_REPEAT;
+import dk.brics.automaton.oo.REGEXP_SPECIALCHAR;
+import dk.brics.automaton.oo.REGEXP_UNION;
+import dk.brics.automaton.oo.NodeCache;
+import dk.brics.automaton.oo.RegexVisitor;
+import dk.brics.automaton.oo.oobinregex;
+import dk.brics.automaton.oo.ooregex;
+import dk.brics.automaton.oo.oosimpleexp;
+import dk.brics.automaton.oo.oounaryregex;
+
+/**
+ * properties of an ooregex that the engines check on every mutant, computed
+ * on the tree in one visit instead of searching its string. The flags of the
+ * interned composite sub expressions are kept, a mutant visits only the path it
+ * does not share with its parent
+ */
+public class RegexFlags implements RegexVisitor<Integer> {
+
+	/** a complement (~) */
+	public static final int COMPLEMENT = 1;
+	/** a repeat that can be empty: *, ? or {0,n} */
+	public static final int EMPTY_REPEAT = 2;
+	/**
+	 * a literal ^, * or ?: without the escapes (the strings given to Hyperscan)
+	 * it is an anchor or a quantifier
+	 */
+	public static final int BARE_OPERATOR = 4;
+
+	private static final RegexFlags visitor = new RegexFlags();
+
+	private static final NodeCache<Integer> flags = new NodeCache<>();
+
+	private RegexFlags() {
+	}
+
+	public static int of(ooregex regex) {
+		return regex.accept(visitor);
+	}
+
+	private int sub(ooregex r) {
+		if (r instanceof oobinregex || r instanceof oounaryregex)
+			return flags.get(r, o -> o.accept(this));
+		return r.accept(this);
+	}
+
+	private int binary(oobinregex r) {
+		return sub(r.exp1) | sub(r.exp2);
+	}
+
+	@Override
+	public Integer visit(REGEXP_UNION r) {
+		return binary(r);
+	}
+
+	@Override
+	public Integer visit(REGEXP_CONCATENATION r) {
+		return binary(r);
+	}
+
+	@Override
+	public Integer visit(REGEXP_INTERSECTION r) {
+		return binary(r);
+	}
+
+	@Override
+	public Integer visit(REGEXP_REPEAT r) {
+		return sub(r.getContentExpr()) | (r.min == 0 ? EMPTY_REPEAT : 0);
+	}
+
+	@Override
+	public Integer visit(REGEXP_COMPLEMENT r) {
+		return sub(r.getContentExpr()) | COMPLEMENT;
+	}
+
+	private static int bare(char c) {
+		return c == '^' || c == '*' || c == '?' ? BARE_OPERATOR : 0;
+	}
+
+	@Override
+	public Integer visit(REGEXP_CHAR r) {
+		return bare(r.c);
+	}
+
+	@Override
+	public Integer visit(REGEXP_CHAR_RANGE r) {
+		return bare(r.from) | bare(r.to);
+	}
+
+	@Override
+	public Integer visit(oosimpleexp r) {
+		int flags = 0;
+		for (int i = 0; i < r.s.length(); i++) {
+			flags |= bare(r.s.charAt(i));
+		}
+		return flags;
+	}
+
+	@Override
+	public Integer visit(REGEXP_SPECIALCHAR r) {
+		return 0;
+	}
+
+	@Override
+	public Integer visit(REGEXP_AUTOMATON r) {
+		return 0;
+	}
+
+	@Override
+	public Integer visit(REGEXP_INTERVAL r) {
+		return 0;
+	}
+
+	@Override
+	public String getCode() {
+		return "FL";
+	}
+}
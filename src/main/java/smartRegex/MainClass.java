@@ -1,13 +1,15 @@
 package smartRegex;
 
-import jdk.nashorn.internal.runtime.ParserException;
 import org.apache.commons.cli.*;
 import regex.operators.AllMutators;
+import regex.operators.SubtreeCrossover;
 import smartRegex.evolutionEngine.*;
 import smartRegex.utils.LabeledString;
 import smartRegex.utils.RegexCandidate;
+import smartRegex.utils.VirtualThreads;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.FileReader;
 import java.util.ArrayList;
 import java.util.List;
@@ -21,9 +23,59 @@ public class MainClass {
     public static boolean USE_HOM = true;
     public static int N_POP = 50;
     public static int N_ITER = 20;
+    public static int RUNS = 1;
+    // limits of the whole run, 0 means no limit
+    public static long TIME_BUDGET = 0;
+    public static long EVAL_BUDGET = 0;
+    // how many regexes of a run are remembered with their fitness, so that the duplicate mutants are not evaluated
+    // again, 0 disables it
+    public static int DEDUP_CAPACITY = 100000;
     public static int N_PARENTS = 25;
+    public static int MAX_MUTANTS = 0;
+    // the mutants of each operator follow its success rate
+    public static boolean BANDIT = false;
+    public static Selection SELECTION = Selection.ROULETTE;
+    public static int TOURNAMENT_SIZE = 2;
     public static int N_STRINGS = 100;
-    public final static int N_HOM_THREADS = 5;
+    // convergence criteria, 0 disables them: generations without a better best, distinct regexes over the
+    // population, distance between the best and the worst fitness
+    public static int STALL_GENERATIONS = 0;
+    public static float MIN_DIVERSITY = 0;
+    public static float EPSILON = 0;
+    // what a converged run does: it stops, or it starts again from its best regex
+    public static boolean RESTART_ON_CONVERGE = false;
+    // the state of the run is written every CHECKPOINT_EVERY generations (0: never), RESUME continues from it
+    public static int CHECKPOINT_EVERY = 0;
+    public static String CHECKPOINT_FILE = "smartregex.checkpoint";
+    public static boolean RESUME = false;
+    // the file of the regexes evolved by past runs (null: not used): WARM_FRACTION of the population starts from
+    // the ones evolved on the nearest strings, and the result of the run is stored there
+    public static String LIBRARY = null;
+    public static float WARM_FRACTION = 0.2f;
+    // every run is done without and then with the library, which is not updated
+    public static boolean WARM_COMPARE = false;
+    // probability that a parent is also crossed with another parent of its generation
+    public static float CROSS_RATE = 0;
+    // every run is done without crossover and then with CROSS_RATE, to compare the time to the target fitness
+    public static boolean CROSS_COMPARE = false;
+    // how many threads the engines keep busy at the same time, every engine splits it in its own way
+    public static int N_THREADS = Runtime.getRuntime().availableProcessors();
+    // null: a different run every time
+    public static Long SEED = null;
+    private static boolean threadsFromOption = false;
+    public static int N_CARRIERS;
+    // workers of the mutation, automaton compilation and evaluation stages of the pipeline
+    public static int PIPE_MUTATORS, PIPE_COMPILERS, PIPE_EVALUATORS;
+    public static int PIPE_QUEUE = 256;
+    public static int REPORT_EVERY = 1000;
+    public static int N_ISLANDS = 4;
+    public static int MIGRATION_INTERVAL = 5;
+    public static int N_MIGRANTS = 2;
+    public static IslandEngine.Topology TOPOLOGY = IslandEngine.Topology.RING;
+    public static int PORT = 5050;
+    public static int N_SPAWN = 0;
+    public static int WORKER_TIMEOUT = 600;
+    private static String workerAddress;
 
     public static boolean SPECIALIZE = true;
 
@@ -35,6 +87,15 @@ public class MainClass {
 
     public static RegexCandidate finalRegex;
     public static double finalFri;
+    // why the last run stopped, and the generations it did not need
+    public static String stopReason;
+    public static int generationsSaved;
+    // when the last run first evaluated a regex over the target fitness, -1 if it never did
+    public static double secondsToTarget;
+    public static long evaluationsToTarget;
+    public static int generationsToTarget;
+    // with -pareto, the non-dominated regexes of the last run
+    public static List<RegexCandidate> paretoFront;
 
     public static List<LabeledString> strings = new ArrayList<>();
 
@@ -42,50 +103,134 @@ public class MainClass {
         MONO_THREAD,
         MULTI_THREAD,
         MULTI_THREAD_V2,
-        MULTI_THREAD_HYPER_SCAN
+        MULTI_THREAD_HYPER_SCAN,
+        FORK_JOIN,
+        VIRTUAL_THREAD,
+        PIPELINE,
+        STEADY_STATE,
+        ISLAND,
+        DISTRIBUTED_ISLAND,
+        PARETO
     }
 
     public static void main(String[] args) {
         cmdParser(args);
 
         AllMutators.enableOnly(new String[]{"CA", "CC", "RMR", "CCA", "QC", "PA", "CCR"});
-        EvolutionEngine engine;
-        switch (mode) {
-            case MONO_THREAD:
-                engine = new MonoThreadEngine();
-                break;
-            case MULTI_THREAD:
-                engine = new MultiThreadEngine();
-                break;
-            case MULTI_THREAD_V2:
-                engine = new MultiThreadV2Engine();
-                break;
-            case MULTI_THREAD_HYPER_SCAN:
-                engine = new MultiHyperScanEngine();
-                break;
-            default:
-                throw new RuntimeException();
+        if (workerAddress != null) {
+            // this process only hosts an island of a coordinator, the results are printed there
+            try {
+                IslandWorker.work(workerAddress.substring(0, workerAddress.lastIndexOf(':')),
+                        Integer.parseInt(workerAddress.substring(workerAddress.lastIndexOf(':') + 1)));
+            } catch (IOException e) {
+                System.out.println("Island worker stopped: " + e);
+            }
+            return;
+        }
+        double[] profData = new double[2];
+        try (EvolutionEngine engine = createEngine()) {
+            System.out.println("Thread budget: " + N_THREADS + (threadsFromOption ? " (-threads)" : " (available processors)"));
+            if (SEED != null) System.out.println("Seed: " + SEED);
+            System.out.println("Scheduling: " + engine.schedulingPolicy());
+            engine.setIncumbentListener((best, evaluations, elapsed) -> System.out.println("New best after "
+                    + evaluations + " evaluations and " + elapsed/1e9f + " sec: " + best.regex + " with fitness " + best.fitness));
+            // the engine and its threads are reused by all the runs, the results printed below are the ones of the last run
+            float crossRate = CROSS_RATE, warmFraction = WARM_FRACTION;
+            // with -crosscompare or -warmcompare every run is done twice, first without the feature
+            boolean compare = CROSS_COMPARE || WARM_COMPARE;
+            String[] variants = CROSS_COMPARE ? new String[]{"mutation only", "crossover rate " + crossRate}
+                    : new String[]{"cold start", "warm start " + warmFraction};
+            // for each variant: runs that reached the target, seconds, evaluations and generations to it
+            double[][] toTarget = new double[2][4];
+            for (int i = 1; i <= RUNS; i++) {
+                for (int c = compare ? 0 : 1; c < 2; c++) {
+                    CROSS_RATE = CROSS_COMPARE && c == 0 ? 0 : crossRate;
+                    WARM_FRACTION = WARM_COMPARE && c == 0 ? 0 : warmFraction;
+                    profData = engine.run();
+                    if (RUNS > 1 || compare) {
+                        System.out.println("Run " + i + " / " + RUNS + (compare ? " (" + variants[c] + ")" : "")
+                                + ": " + finalRegex.regex + " with fitness " + finalRegex.fitness
+                                + " in " + profData[0]/1000 + " sec, stopped by " + stopReason);
+                    }
+                    if (secondsToTarget >= 0) {
+                        toTarget[c][0]++;
+                        toTarget[c][1] += secondsToTarget;
+                        toTarget[c][2] += evaluationsToTarget;
+                        toTarget[c][3] += generationsToTarget;
+                    }
+                }
+            }
+            if (compare) {
+                System.out.println("\nTIME TO TARGET (fitness > 0.96, mean of the runs that reached it):");
+                for (int c = 0; c < 2; c++) {
+                    double n = toTarget[c][0];
+                    System.out.println(String.format("    %-22s", variants[c] + ":") + (int) n + " / " + RUNS + " runs"
+                            + (n == 0 ? "" : ", " + (float) (toTarget[c][1] / n) + " sec, " + (long) (toTarget[c][2] / n)
+                            + " evaluations, " + (float) (toTarget[c][3] / n) + " generations"));
+                }
+                if (toTarget[0][0] > 0 && toTarget[1][0] > 0) {
+                    double before = toTarget[0][3] / toTarget[0][0], after = toTarget[1][3] / toTarget[1][0];
+                    System.out.println("    generations to target: " + String.format("%+.1f%%", 100 * (after - before) / before)
+                            + " with " + variants[1]);
+                }
+            }
         }
-
-
-        double[] profData = engine.run();
 
         System.out.println("\n\n\n~*~*~*~*~*~*~*~*~" + mode.toString() + "~*~*~*~*~*~*~*~*~\n");
         System.out.println("   --- RESULTS ---   \n");
         if (useFile) {
-            System.out.println("BEST REGEX FOUND: " + finalRegex.regex.toString() +
+            System.out.println("BEST REGEX FOUND: " + finalRegex.string() +
                     "\n                  with fitness " + finalRegex.fitness);
         } else {
-            System.out.println("BEST REGEX FOUND: " + finalRegex.regex.toString() +
+            System.out.println("BEST REGEX FOUND: " + finalRegex.string() +
                     "\n                  with fitness " + finalRegex.fitness +
                     "\n                  and failure residual index " + finalFri);
         }
+        if (paretoFront != null) {
+            System.out.println("PARETO FRONT (accuracy, DFA states, ns/string):");
+            for (RegexCandidate r : paretoFront) {
+                System.out.println("    " + r.accuracy + ", " + r.states() + ", " + (int) r.matchNanos + ": " + r.regex);
+            }
+        }
+        System.out.println("STOPPED BY: " + stopReason);
+        System.out.println("GENERATIONS SAVED: " + generationsSaved);
+        System.out.println("TIME TO TARGET: " + (secondsToTarget < 0 ? "not reached"
+                : (float) secondsToTarget + " sec, " + evaluationsToTarget + " evaluations, " + generationsToTarget + " generations"));
         System.out.println("TOTAL TIME: " + (int) profData[0] + "ms");
         System.out.println("N. OFFSPRING : " + (int) profData[1]);
         System.out.println("MILLIS/OFFSPRING: " + profData[0] / profData[1]);
 
     }
 
+    private static EvolutionEngine createEngine() {
+        switch (mode) {
+            case MONO_THREAD:
+                return new MonoThreadEngine();
+            case MULTI_THREAD:
+                return new MultiThreadEngine();
+            case MULTI_THREAD_V2:
+                return new MultiThreadV2Engine();
+            case MULTI_THREAD_HYPER_SCAN:
+                return new MultiHyperScanEngine();
+            case FORK_JOIN:
+                return new ForkJoinEngine();
+            case VIRTUAL_THREAD:
+                return new VirtualThreadEngine();
+            case PIPELINE:
+                return new PipelineEngine();
+            case STEADY_STATE:
+                return new SteadyStateEngine();
+            case ISLAND:
+                return new IslandEngine();
+            case DISTRIBUTED_ISLAND:
+                return new DistributedIslandEngine();
+            case PARETO:
+                return new ParetoEngine();
+            default:
+                throw new RuntimeException();
+        }
+    }
+
     private static void cmdParser(String[] args){
         CommandLineParser parser = new DefaultParser();
         Options options = new Options();
@@ -139,6 +284,156 @@ public class MainClass {
                 .hasArg()
                 .desc(  "the percentage of the parents that can receive higher order mutation (HOM) in one generation [default 0.2]" )
                 .build();
+        Option maxMutants = Option.builder("maxmutants")
+                .argName("int")
+                .hasArg()
+                .desc(  "how many mutants of each parent are drawn at random, the others are never built [default: all]" )
+                .build();
+        Option selection = Option.builder("selection")
+                .argName("roulette|alias|tournament|rank|sus")
+                .hasArg()
+                .desc(  "how the parents are chosen: proportional to the fitness (binary search or alias table), best of a tournament, proportional to the rank or stochastic universal sampling [default roulette]" )
+                .build();
+        Option tournament = Option.builder("tournament")
+                .argName("int")
+                .hasArg()
+                .desc(  "how many regexes take part in each tournament of the tournament selection [default 2]" )
+                .build();
+        Option stallGen = Option.builder("stallgen")
+                .argName("int")
+                .hasArg()
+                .desc(  "the run has converged when the best fitness has not improved for this many generations [default 0: not checked]" )
+                .build();
+        Option minDiversity = Option.builder("mindiversity")
+                .argName("float [0,1]")
+                .hasArg()
+                .desc(  "the run has converged when the distinct regexes are less than this fraction of the population [default 0: not checked]" )
+                .build();
+        Option epsilon = Option.builder("epsilon")
+                .argName("float")
+                .hasArg()
+                .desc(  "the run has converged when all the fitnesses of the population are within this distance [default 0: not checked]" )
+                .build();
+        Option onConverge = Option.builder("onconverge")
+                .argName("stop|restart")
+                .hasArg()
+                .desc(  "what a converged run does: it stops, or it starts again from the best regex and copies of the start regex [default stop]" )
+                .build();
+        Option crossRate = Option.builder("crossrate")
+                .argName("float [0,1]")
+                .hasArg()
+                .desc(  "probability that a parent is also crossed with another parent of its generation, giving " + SubtreeCrossover.CHILDREN + " more offspring [default 0: mutation only]" )
+                .build();
+        Option checkpoint = Option.builder("checkpoint")
+                .argName("int")
+                .hasArg()
+                .desc(  "write the populations, the random state and the generation to the checkpoint file every this many generations [default 0: never]" )
+                .build();
+        Option checkpointFile = Option.builder("checkpointfile")
+                .argName("file")
+                .hasArg()
+                .desc(  "the checkpoint file written by -checkpoint and read by -resume [default smartregex.checkpoint]" )
+                .build();
+        Option library = Option.builder("library")
+                .argName("file")
+                .hasArg()
+                .desc(  "start part of the population from the regexes evolved by past runs on the most similar strings, and store the result of the run there [default: not used]" )
+                .build();
+        Option warmStart = Option.builder("warmstart")
+                .argName("float [0,1]")
+                .hasArg()
+                .desc(  "the fraction of the population that starts from the regexes of -library [default 0.2]" )
+                .build();
+        Option runs = Option.builder("runs")
+                .argName("int")
+                .hasArg()
+                .desc(  "how many times the evolution is run with the same engine and threads, the results are the ones of the last run [default 1]" )
+                .build();
+        Option timeBudget = Option.builder("timeBudget")
+                .argName("ms")
+                .hasArg()
+                .desc(  "stop the evolution after this time and return the best regex found so far [default: no limit]" )
+                .build();
+        Option evalBudget = Option.builder("evalBudget")
+                .argName("int")
+                .hasArg()
+                .desc(  "stop the evolution after this number of fitness evaluations and return the best regex found so far [default: no limit]" )
+                .build();
+        Option dedupSize = Option.builder("dedupsize")
+                .argName("int")
+                .hasArg()
+                .desc(  "how many evaluated regexes a run remembers, so that the duplicate mutants take their fitness instead of being evaluated again; the oldest generations are forgotten first [default 100000]" )
+                .build();
+        Option seed = Option.builder("seed")
+                .argName("long")
+                .hasArg()
+                .desc(  "the seed of all the random choices, with the same seed every engine but the steady state one gives the same result with any number of threads [default: random]" )
+                .build();
+        Option threads = Option.builder("threads")
+                .argName("int")
+                .hasArg()
+                .desc(  "how many threads the evolution can keep busy at the same time [default: number of cores]" )
+                .build();
+        Option carriers = Option.builder("carriers")
+                .argName("int")
+                .hasArg()
+                .desc(  "the number of platform threads that run the virtual threads, fixed by the first virtual thread of the JVM [default: threads]" )
+                .build();
+        Option pipeWorkers = Option.builder("pipeworkers")
+                .argName("int,int,int")
+                .hasArg()
+                .desc(  "the number of workers of the mutation, automaton compilation and evaluation stages of the pipeline [default: threads/4, threads/2, threads/4, at least 1 each]" )
+                .build();
+        Option pipeQueue = Option.builder("pipequeue")
+                .argName("int")
+                .hasArg()
+                .desc(  "the capacity of the queues between the stages of the pipeline [default 256]" )
+                .build();
+        Option reportEvery = Option.builder("reportevery")
+                .argName("int")
+                .hasArg()
+                .desc(  "how many evaluations between two progress reports and convergence checks of the steady state evolution [default 1000]" )
+                .build();
+        Option nIslands = Option.builder("nislands")
+                .argName("int")
+                .hasArg()
+                .desc(  "the number of islands of the island evolution [default 4]" )
+                .build();
+        Option migInterval = Option.builder("migint")
+                .argName("int")
+                .hasArg()
+                .desc(  "how many generations between two migrations of the island evolution [default 5]" )
+                .build();
+        Option migrants = Option.builder("migrants")
+                .argName("int")
+                .hasArg()
+                .desc(  "how many of its best regexes each island sends at every migration [default 2]" )
+                .build();
+        Option topology = Option.builder("topology")
+                .argName("ring|full|random")
+                .hasArg()
+                .desc(  "where the migrants of each island go: the next island, all the other islands or a random one [default ring]" )
+                .build();
+        Option worker = Option.builder("worker")
+                .argName("host:port")
+                .hasArg()
+                .desc(  "run as an island of the coordinator listening at host:port" )
+                .build();
+        Option port = Option.builder("port")
+                .argName("int")
+                .hasArg()
+                .desc(  "the port the coordinator listens on [default 5050]" )
+                .build();
+        Option spawn = Option.builder("spawn")
+                .argName("int")
+                .hasArg()
+                .desc(  "how many island workers the coordinator starts on localhost, if 0 it waits for nislands external workers [default 0]" )
+                .build();
+        Option workerTimeout = Option.builder("workertimeout")
+                .argName("sec")
+                .hasArg()
+                .desc(  "after how many seconds without an answer an island worker is considered dead [default 600]" )
+                .build();
         options.addOption(r_oracolo)
                 .addOption(r_universo)
                 .addOption(r_partenza)
@@ -148,14 +443,56 @@ public class MainClass {
                 .addOption(niter)
                 .addOption(nstrings)
                 .addOption(nstar)
-                .addOption(homperc);
+                .addOption(homperc)
+                .addOption(maxMutants)
+                .addOption(selection)
+                .addOption(tournament)
+                .addOption(stallGen)
+                .addOption(minDiversity)
+                .addOption(crossRate)
+                .addOption(epsilon)
+                .addOption(onConverge)
+                .addOption(runs)
+                .addOption(library)
+                .addOption(warmStart)
+                .addOption(checkpoint)
+                .addOption(checkpointFile)
+                .addOption(timeBudget)
+                .addOption(evalBudget)
+                .addOption(dedupSize)
+                .addOption(seed)
+                .addOption(threads)
+                .addOption(carriers)
+                .addOption(pipeWorkers)
+                .addOption(pipeQueue)
+                .addOption(reportEvery)
+                .addOption(nIslands)
+                .addOption(migInterval)
+                .addOption(migrants)
+                .addOption(topology)
+                .addOption(worker)
+                .addOption(port)
+                .addOption(spawn)
+                .addOption(workerTimeout);
         options.addOption("mono", false, "use mono thread evolution");
         options.addOption("multi", false, "use multi thread evolution");
         options.addOption("multi2", false, "use enhanced multi thread evolution [default]");
         options.addOption("hyper", false, "use Hyperscan evolution (only Linux)");
+        options.addOption("forkjoin", false, "use work-stealing fork/join evolution");
+        options.addOption("virtual", false, "use multi thread evolution on virtual threads (only Java 21+)");
+        options.addOption("pipeline", false, "use pipelined evolution (mutation, compilation and evaluation stages)");
+        options.addOption("steady", false, "use steady state evolution (no generations)");
+        options.addOption("island", false, "use island evolution (independent populations with migration)");
+        options.addOption("coordinator", false, "use island evolution with each island in a worker process connected over TCP");
+        options.addOption("pareto", false, "use multi-objective evolution (NSGA-II): accuracy against DFA states and match time, the result is a Pareto front");
         options.addOption("h", false, "display this help message");
+        options.addOption("resume", false, "continue the first run from the checkpoint file, if it exists; the strings must be the same of the checkpoint");
         options.addOption("nospecialize", false, "the final regex is not specialized");
         options.addOption("disablehom", false, "disable HOM mutation");
+        options.addOption("nodedup", false, "evaluate also the mutants already produced in the run");
+        options.addOption("warmcompare", false, "do every run without and then with the regexes of -library, and compare the time to the target fitness; the library is not updated");
+        options.addOption("crosscompare", false, "do every run without crossover and then with -crossrate, and compare the time to the target fitness");
+        options.addOption("bandit", false, "draw the mutants of each parent from the operators in proportion to how often their offspring beat the parent (-maxmutants per parent, default 30)");
         HelpFormatter formatter = new HelpFormatter();
 
         String header = "\nThis program try to find the regex that match more a set of given (or generated) strings using evolutionary computing\n" +
@@ -185,10 +522,42 @@ public class MainClass {
                 mode = ExecutionMode.MULTI_THREAD_HYPER_SCAN;
                 nModes++;
             }
+            if(line.hasOption("forkjoin")){
+                mode = ExecutionMode.FORK_JOIN;
+                nModes++;
+            }
+            if(line.hasOption("virtual")){
+                mode = ExecutionMode.VIRTUAL_THREAD;
+                nModes++;
+            }
+            if(line.hasOption("pipeline")){
+                mode = ExecutionMode.PIPELINE;
+                nModes++;
+            }
+            if(line.hasOption("steady")){
+                mode = ExecutionMode.STEADY_STATE;
+                nModes++;
+            }
+            if(line.hasOption("island")){
+                mode = ExecutionMode.ISLAND;
+                nModes++;
+            }
+            if(line.hasOption("coordinator")){
+                mode = ExecutionMode.DISTRIBUTED_ISLAND;
+                nModes++;
+            }
+            if(line.hasOption("pareto")){
+                mode = ExecutionMode.PARETO;
+                nModes++;
+            }
             if(nModes > 1){
                 System.out.println("Error: you have to specify only one execution mode!\n");
                 System.exit(1);
             }
+            if(mode == ExecutionMode.VIRTUAL_THREAD && !VirtualThreads.isSupported()){
+                System.out.println("Error: virtual threads need Java 21 or newer!\n");
+                System.exit(1);
+            }
             String filePath = line.getOptionValue("f");
             if (filePath != null){
                 useFile = true;
@@ -209,15 +578,131 @@ public class MainClass {
             String nStrings = line.getOptionValue("nstrings");
             String nStar = line.getOptionValue("nstar");
             String homPerc = line.getOptionValue("homperc");
+            String mMutants = line.getOptionValue("maxmutants");
+            String sel = line.getOptionValue("selection");
+            String tSize = line.getOptionValue("tournament");
+            String sGen = line.getOptionValue("stallgen");
+            String minDiv = line.getOptionValue("mindiversity");
+            String cross = line.getOptionValue("crossrate");
+            String eps = line.getOptionValue("epsilon");
+            String onConv = line.getOptionValue("onconverge");
+            String nRuns = line.getOptionValue("runs");
+            String nCheckpoint = line.getOptionValue("checkpoint");
+            String tBudget = line.getOptionValue("timeBudget");
+            String eBudget = line.getOptionValue("evalBudget");
+            String dSize = line.getOptionValue("dedupsize");
+            String nSeed = line.getOptionValue("seed");
+            String nThreads = line.getOptionValue("threads");
+            String nCarriers = line.getOptionValue("carriers");
+            String pWorkers = line.getOptionValue("pipeworkers");
+            String pQueue = line.getOptionValue("pipequeue");
+            String reportEv = line.getOptionValue("reportevery");
+            String nIsl = line.getOptionValue("nislands");
+            String migInt = line.getOptionValue("migint");
+            String nMigrants = line.getOptionValue("migrants");
+            String topo = line.getOptionValue("topology");
+            String nPort = line.getOptionValue("port");
+            String nSpawn = line.getOptionValue("spawn");
+            String wTimeout = line.getOptionValue("workertimeout");
+            workerAddress = line.getOptionValue("worker");
             if(nPop != null) N_POP = Integer.parseInt(nPop);
             if(nIter != null) N_ITER = Integer.parseInt(nIter);
             if(nPar != null) N_PARENTS = Integer.parseInt(nPar);
             if(nStrings != null) N_STRINGS = Integer.parseInt(nStrings);
             if(nStar != null) MAX_INFINITE = Integer.parseInt(nStar);
             if(homPerc != null) HOM_PERC = Float.parseFloat(homPerc);
+            if(mMutants != null) MAX_MUTANTS = Integer.parseInt(mMutants);
+            if(sel != null){
+                try {
+                    SELECTION = Selection.valueOf(sel.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new ParseException("selection");
+                }
+            }
+            if(tSize != null){
+                TOURNAMENT_SIZE = Integer.parseInt(tSize);
+                if (TOURNAMENT_SIZE < 1) throw new ParseException("tournament");
+            }
+            if(sGen != null) STALL_GENERATIONS = Integer.parseInt(sGen);
+            if(minDiv != null) MIN_DIVERSITY = Float.parseFloat(minDiv);
+            if(cross != null) {
+                CROSS_RATE = Float.parseFloat(cross);
+                if (CROSS_RATE < 0 || CROSS_RATE > 1) throw new ParseException("crossrate");
+            }
+            if(eps != null) EPSILON = Float.parseFloat(eps);
+            if(onConv != null){
+                if (!onConv.equals("stop") && !onConv.equals("restart")) throw new ParseException("onconverge");
+                RESTART_ON_CONVERGE = onConv.equals("restart");
+            }
+            if(nRuns != null) RUNS = Integer.parseInt(nRuns);
+            if(tBudget != null) TIME_BUDGET = Long.parseLong(tBudget);
+            if(eBudget != null) EVAL_BUDGET = Long.parseLong(eBudget);
+            if(dSize != null) DEDUP_CAPACITY = Integer.parseInt(dSize);
+            if(nSeed != null) SEED = Long.parseLong(nSeed);
+            if(nThreads != null){
+                N_THREADS = Integer.parseInt(nThreads);
+                if (N_THREADS < 1) throw new ParseException("threads");
+                threadsFromOption = true;
+            }
+            N_CARRIERS = nCarriers != null ? Integer.parseInt(nCarriers) : N_THREADS;
+            if(pWorkers != null){
+                String[] w = pWorkers.split(",");
+                if (w.length != 3) throw new ParseException("pipeworkers");
+                PIPE_MUTATORS = Integer.parseInt(w[0]);
+                PIPE_COMPILERS = Integer.parseInt(w[1]);
+                PIPE_EVALUATORS = Integer.parseInt(w[2]);
+                if (PIPE_MUTATORS < 1 || PIPE_COMPILERS < 1 || PIPE_EVALUATORS < 1) throw new ParseException("pipeworkers");
+            } else {
+                PIPE_MUTATORS = Math.max(1, N_THREADS / 4);
+                PIPE_COMPILERS = Math.max(1, N_THREADS / 2);
+                PIPE_EVALUATORS = Math.max(1, N_THREADS / 4);
+            }
+            if(pQueue != null){
+                PIPE_QUEUE = Integer.parseInt(pQueue);
+                if (PIPE_QUEUE < 1) throw new ParseException("pipequeue");
+            }
+            if(reportEv != null){
+                REPORT_EVERY = Integer.parseInt(reportEv);
+                if (REPORT_EVERY < 1) throw new ParseException("reportevery");
+            }
+            if(nIsl != null){
+                N_ISLANDS = Integer.parseInt(nIsl);
+                if (N_ISLANDS < 1) throw new ParseException("nislands");
+            }
+            if(migInt != null){
+                MIGRATION_INTERVAL = Integer.parseInt(migInt);
+                if (MIGRATION_INTERVAL < 1) throw new ParseException("migint");
+            }
+            if(nMigrants != null) N_MIGRANTS = Integer.parseInt(nMigrants);
+            if(topo != null){
+                try {
+                    TOPOLOGY = IslandEngine.Topology.valueOf(topo.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new ParseException("topology");
+                }
+            }
+            if(nPort != null) PORT = Integer.parseInt(nPort);
+            if(nSpawn != null) N_SPAWN = Integer.parseInt(nSpawn);
+            if(wTimeout != null) WORKER_TIMEOUT = Integer.parseInt(wTimeout);
+            if(workerAddress != null && !workerAddress.contains(":")) throw new ParseException("worker");
 
             if(line.hasOption("nospecialize"))    SPECIALIZE = false;
+            if(nCheckpoint != null) CHECKPOINT_EVERY = Integer.parseInt(nCheckpoint);
+            if(line.hasOption("checkpointfile"))    CHECKPOINT_FILE = line.getOptionValue("checkpointfile");
+            if(line.hasOption("resume"))    RESUME = true;
             if(line.hasOption("disablehom"))    USE_HOM = false;
+            if(line.hasOption("nodedup"))    DEDUP_CAPACITY = 0;
+            if(line.hasOption("bandit"))    BANDIT = true;
+            if(line.hasOption("crosscompare"))  CROSS_COMPARE = true;
+            if(line.hasOption("library"))   LIBRARY = line.getOptionValue("library");
+            if(line.hasOption("warmstart")) {
+                WARM_FRACTION = Float.parseFloat(line.getOptionValue("warmstart"));
+                if (WARM_FRACTION < 0 || WARM_FRACTION > 1) throw new ParseException("warmstart");
+            }
+            if(line.hasOption("warmcompare")) {
+                if (LIBRARY == null || CROSS_COMPARE) throw new ParseException("warmcompare");
+                WARM_COMPARE = true;
+            }
 
 
         } catch (ParseException e) {
@@ -236,7 +721,7 @@ public class MainClass {
                 String line = s.nextLine();
                 String[] lsplit = line.split(" ");
                 if (lsplit.length != 2 || !(lsplit[1].equals("C") || lsplit[1].equals("W")))
-                    throw new ParserException("" + currentLine);
+                    throw new java.text.ParseException(line, currentLine);
                 boolean correct = lsplit[1].equals("C");
                 strings.add(new LabeledString(lsplit[0], correct));
                 currentLine++;
@@ -245,8 +730,8 @@ public class MainClass {
         } catch (FileNotFoundException e) {
             System.out.println("File not found!");
             System.exit(1);
-        } catch (ParserException l){
-            System.out.println("Error reading the file at line " + l.getMessage());
+        } catch (java.text.ParseException l){
+            System.out.println("Error reading the file at line " + l.getErrorOffset());
             System.exit(1);
         }
     }
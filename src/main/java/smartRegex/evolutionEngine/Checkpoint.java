@@ -0,0 +1,141 @@
+package smartRegex.evolutionEngine;
+
+import dk.brics.automaton.RegExp;
+import smartRegex.utils.LabeledString;
+import smartRegex.utils.RegexCandidate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// The state of a run at the end of a generation: generations and restarts done, the hash of the strings and, for the
+// engine and for each of its populations (the islands), a seed and the candidates. A candidate is its regex string
+// with its fitness, so the population is not evaluated again on resume. A SplittableRandom cannot be saved, so the
+// generators are seeded again when the checkpoint is written and the seeds are written instead.
+// The file is written next to the old one and then moved over it, so a run that dies while writing leaves the last
+// complete checkpoint
+class Checkpoint {
+
+    private static final int MAGIC = 0x53524350, VERSION = 1;
+
+    private Path file;
+
+    Checkpoint(String file) {
+        this.file = Paths.get(file);
+    }
+
+    boolean exists() {
+        return Files.exists(file);
+    }
+
+    // the populations of engine are the ones returned by engine.populations()
+    void write(EvolutionEngine engine) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(datasetHash(EvolutionEngine.strings));
+            out.writeInt(engine.generationsRun);
+            out.writeInt(engine.restarts);
+            out.writeLong(reseed(engine));
+            List<EvolutionEngine> populations = engine.populations();
+            out.writeInt(populations.size());
+            for (EvolutionEngine p : populations) {
+                out.writeLong(reseed(p));
+                out.writeInt(p.pop.size());
+                for (RegexCandidate r : p.pop) {
+                    out.writeUTF(r.string());
+                    out.writeDouble(r.fitness);
+                    out.writeDouble(r.accuracy);
+                    out.writeDouble(r.matchNanos);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Cannot write checkpoint " + file + ": " + e);
+            return;
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Checkpoint: generation " + engine.generationsRun + " written to " + file);
+        } catch (IOException e) {
+            System.out.println("Cannot write checkpoint " + file + ": " + e);
+        }
+    }
+
+    // Restores the state of engine from the file. The strings of the run must be the ones of the checkpoint
+    void read(EvolutionEngine engine) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new RuntimeException(file + " is not a checkpoint of this version");
+            }
+            String hash = in.readUTF(), current = datasetHash(EvolutionEngine.strings);
+            if (!hash.equals(current)) {
+                throw new RuntimeException("Checkpoint " + file + " was written for other strings (dataset " + hash + ", this run "
+                        + current + "): resume with the same -f, or with the same -seed and string options");
+            }
+            int generation = in.readInt();
+            int restarts = in.readInt();
+            long seed = in.readLong();
+            List<EvolutionEngine> populations = engine.populations();
+            int n = in.readInt();
+            if (n != populations.size()) {
+                throw new RuntimeException("Checkpoint " + file + " has " + n + " populations, this engine " + populations.size());
+            }
+            // the engine first, then its populations: the same order as write, in case the engine is its own population
+            engine.rnd = new SplittableRandom(seed);
+            for (EvolutionEngine p : populations) {
+                p.rnd = new SplittableRandom(in.readLong());
+                p.pop.clear();
+                for (int size = in.readInt(); size > 0; size--) {
+                    RegexCandidate r = new RegexCandidate(new RegExp(in.readUTF()));
+                    r.fitness = in.readDouble();
+                    r.accuracy = in.readDouble();
+                    r.matchNanos = in.readDouble();
+                    p.pop.add(r);
+                    p.seen.put(r);
+                }
+            }
+            engine.generationsRun = generation;
+            engine.restarts = restarts;
+            System.out.println("Resumed from checkpoint " + file + " at generation " + generation);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read checkpoint " + file, e);
+        }
+    }
+
+    private static long reseed(EvolutionEngine engine) {
+        long seed = engine.rnd.nextLong();
+        engine.rnd = new SplittableRandom(seed);
+        return seed;
+    }
+
+    // SHA-256 of the labeled strings, in their order
+    static String datasetHash(List<LabeledString> strings) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (LabeledString l : strings) {
+                md.update(l.string.getBytes(StandardCharsets.UTF_8));
+                md.update((byte) 0);
+                md.update((byte) (l.accepted ? 1 : 0));
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
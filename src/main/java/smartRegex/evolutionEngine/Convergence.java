@@ -0,0 +1,75 @@
+package smartRegex.evolutionEngine;
+
+import smartRegex.MainClass;
+import smartRegex.utils.RegexCandidate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Plateau detection. The population has converged when its best fitness has not improved for
+// MainClass.STALL_GENERATIONS generations, when its distinct regexes are less than MainClass.MIN_DIVERSITY of its
+// size or when all its fitnesses are within MainClass.EPSILON. A criterion set to 0 is not checked
+class Convergence {
+
+    private int stallGenerations;
+    private double minDiversity, epsilon;
+    private double best;
+    private int stalled;
+    private boolean fresh;
+
+    Convergence() {
+        stallGenerations = MainClass.STALL_GENERATIONS;
+        minDiversity = MainClass.MIN_DIVERSITY;
+        epsilon = MainClass.EPSILON;
+        reset();
+    }
+
+    boolean enabled() {
+        return stallGenerations > 0 || minDiversity > 0 || epsilon > 0;
+    }
+
+    // A new population. The first generation is not judged: the population is still made of copies of the start
+    // regex
+    void reset() {
+        best = Double.NEGATIVE_INFINITY;
+        stalled = 0;
+        fresh = true;
+    }
+
+    // the criterion that triggered after some more generations of the population, null if it has not converged
+    String check(List<RegexCandidate> population, int generations) {
+        double max = Double.NEGATIVE_INFINITY, min = Double.POSITIVE_INFINITY;
+        for (RegexCandidate r : population) {
+            max = Math.max(max, r.fitness);
+            min = Math.min(min, r.fitness);
+        }
+        if (max > best) {
+            best = max;
+            stalled = 0;
+        } else {
+            stalled += generations;
+        }
+        if (fresh) {
+            fresh = false;
+            return null;
+        }
+        if (stallGenerations > 0 && stalled >= stallGenerations) {
+            return "no improvement for " + stalled + " generations";
+        }
+        if (minDiversity > 0) {
+            Set<String> distinct = new HashSet<>();
+            for (RegexCandidate r : population) {
+                distinct.add(r.string());
+            }
+            double diversity = (double) distinct.size() / population.size();
+            if (diversity < minDiversity) {
+                return "diversity " + String.format("%.2f", diversity) + " < " + minDiversity;
+            }
+        }
+        if (epsilon > 0 && max - min <= epsilon) {
+            return "all fitnesses within " + epsilon;
+        }
+        return null;
+    }
+}
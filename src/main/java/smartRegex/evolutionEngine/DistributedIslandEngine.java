@@ -0,0 +1,271 @@
+package smartRegex.evolutionEngine;
+
+import smartRegex.MainClass;
+import smartRegex.utils.LabeledString;
+import smartRegex.utils.RegexCandidate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DistributedIslandEngine extends EvolutionEngine {
+
+    private int N_WORKERS, N_SPAWN, PORT, MIGRATION_INTERVAL, N_MIGRANTS, TIMEOUT;
+    private IslandEngine.Topology topology;
+    private List<Process> spawned = new ArrayList<>();
+
+    private class Worker {
+        Socket socket;
+        DataInputStream in;
+        DataOutputStream out;
+        boolean alive = true;
+        List<RegexCandidate> emigrants = new ArrayList<>();
+
+        Worker(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setSoTimeout(TIMEOUT);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void lost(Exception e) {
+            // a dead worker is dropped, the run goes on with the other islands
+            System.out.println("Lost island worker " + socket.getRemoteSocketAddress() + ": " + e);
+            alive = false;
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    public DistributedIslandEngine() {
+        super();
+        N_SPAWN = MainClass.N_SPAWN;
+        N_WORKERS = N_SPAWN > 0 ? N_SPAWN : MainClass.N_ISLANDS;
+        PORT = MainClass.PORT;
+        MIGRATION_INTERVAL = MainClass.MIGRATION_INTERVAL;
+        N_MIGRANTS = MainClass.N_MIGRANTS;
+        TIMEOUT = MainClass.WORKER_TIMEOUT * 1000;
+        topology = MainClass.TOPOLOGY;
+    }
+
+    @Override
+    public String schedulingPolicy() {
+        return N_WORKERS + " island worker processes, each one single thread";
+    }
+
+    @Override
+    public double[] run() {
+        startRun();
+        List<Worker> workers = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(PORT)) {
+            server.setSoTimeout(TIMEOUT);
+            System.out.println("Waiting for " + N_WORKERS + " island workers on port " + server.getLocalPort());
+            for (int i = 0; i < N_SPAWN; i++) {
+                spawnLocalWorker(server.getLocalPort());
+            }
+            while (workers.size() < N_WORKERS) {
+                Worker w;
+                try {
+                    w = new Worker(server.accept());
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                try {
+                    sendSetup(w);
+                    workers.add(w);
+                    System.out.println("Island worker " + workers.size() + " connected from " + w.socket.getRemoteSocketAddress());
+                } catch (IOException e) {
+                    w.lost(e);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot listen on port " + PORT, e);
+        }
+        if (workers.isEmpty()) {
+            throw new RuntimeException("No island worker connected");
+        }
+
+        double[] profData = new double[2];
+        int generation = 0;
+        List<List<RegexCandidate>> immigrants = new ArrayList<>();
+        for (int i = 0; i < workers.size(); i++) {
+            immigrants.add(new ArrayList<>());
+        }
+        // every epoch gives the islands the time left to the run and an equal share of the evaluations left, an
+        // island stops its epoch when they are over
+        while (generation < MAX_ITERATIONS && hasAlive(workers) && !budgetExhausted()) {
+            int nGen = Math.min(MIGRATION_INTERVAL, MAX_ITERATIONS - generation);
+            System.out.println("******************************** DI Generations " + (generation+1) + "-" + (generation+nGen) + " ********************************");
+            Long time1 = System.nanoTime();
+            long millis = budget.remainingMillis(), evaluations = budget.remainingEvaluations();
+            if (evaluations > 0) {
+                evaluations = Math.max(1, evaluations / countAlive(workers));
+            }
+            // all the workers start the epoch before waiting for any of them
+            for (int i = 0; i < workers.size(); i++) {
+                Worker w = workers.get(i);
+                if (!w.alive) continue;
+                try {
+                    w.out.writeInt(nGen);
+                    IslandWorker.writeCandidates(w.out, best(immigrants.get(i), N_MIGRANTS));
+                    w.out.writeInt(N_MIGRANTS);
+                    w.out.writeLong(millis);
+                    w.out.writeLong(evaluations);
+                    w.out.flush();
+                } catch (IOException e) {
+                    w.lost(e);
+                }
+            }
+            for (Worker w : workers) {
+                if (!w.alive) continue;
+                try {
+                    int nOffspring = w.in.readInt();
+                    profData[1] += nOffspring;
+                    budget.add(w.in.readLong());
+                    w.emigrants = IslandWorker.readCandidates(w.in);
+                    for (RegexCandidate r : w.emigrants) {
+                        budget.offer(r);
+                    }
+                } catch (IOException e) {
+                    w.lost(e);
+                }
+            }
+            generation += nGen;
+            // dead workers keep their last emigrants for the final choice, but they send and receive nothing
+            List<List<RegexCandidate>> emigrants = new ArrayList<>();
+            List<Worker> alive = new ArrayList<>();
+            for (Worker w : workers) {
+                if (w.alive) {
+                    emigrants.add(w.emigrants);
+                    alive.add(w);
+                }
+            }
+            List<List<RegexCandidate>> received = IslandEngine.destinations(emigrants, topology, rnd);
+            RegexCandidate best = null;
+            for (int i = 0, j = 0; i < workers.size(); i++) {
+                Worker w = workers.get(i);
+                immigrants.set(i, w.alive ? received.get(j++) : new ArrayList<>());
+                for (RegexCandidate r : w.emigrants) {
+                    if (best == null || r.fitness > best.fitness) {
+                        best = r;
+                    }
+                }
+            }
+            System.out.println("Islands alive: " + alive.size() + " / " + workers.size());
+            Long time2 = System.nanoTime();
+            profData[0] += ((time2 - time1)/1e6f);
+            if (best == null) {
+                break;
+            }
+            System.out.println("Best of all islands: " + best.regex + " with fitness " + best.fitness);
+            System.out.println("Time these generations: " + (time2 - time1)/1e9f + " sec\n");
+            if (fri != null) {
+                double lastnum = fri.numFinalFaults;
+                fri.computeRatio(best.regex);
+                System.out.println("Fault index these generations over last ones: " + fri.numFinalFaults + " / " + lastnum + " --> Ratio: " + (fri.numFinalFaults / lastnum));
+                System.out.println("Fault index these generations over initial one: " + fri.numFinalFaults + " / " + fri.numInitialFaults + " --> Ratio: " + (fri.numFinalFaults / fri.numInitialFaults));
+            }
+            // the coordinator only sees the emigrants, the convergence is judged on them
+            List<RegexCandidate> all = new ArrayList<>();
+            for (List<RegexCandidate> e : emigrants) {
+                all.addAll(e);
+            }
+            if (best.fitness > 0.96 || converged(nGen, all)) {
+                break;
+            }
+        }
+        // the final regex is chosen among the populations of the islands still alive and the last emigrants of the dead ones
+        List<RegexCandidate> all = new ArrayList<>();
+        for (Worker w : workers) {
+            if (w.alive) {
+                try {
+                    w.out.writeInt(0);
+                    w.out.flush();
+                    all.addAll(IslandWorker.readCandidates(w.in));
+                    w.socket.close();
+                    continue;
+                } catch (IOException e) {
+                    w.lost(e);
+                }
+            }
+            all.addAll(w.emigrants);
+        }
+        for (Process p : spawned) {
+            p.destroy();
+        }
+        if (!all.isEmpty()) {
+            pop.clear();
+            pop.addAll(all);
+        }
+        chooseFinalRegex();
+        return profData;
+    }
+
+    // the populations are in the workers
+    @Override
+    boolean restart() {
+        return false;
+    }
+
+    @Override
+    List<EvolutionEngine> populations() {
+        return null;
+    }
+
+    private void sendSetup(Worker w) throws IOException {
+        w.out.writeInt(MainClass.N_POP);
+        w.out.writeInt(N_PARENTS);
+        w.out.writeFloat(HOM_PERCENTAGE);
+        w.out.writeBoolean(USE_HOM);
+        w.out.writeInt(MainClass.MAX_INFINITE);
+        w.out.writeInt(MainClass.DEDUP_CAPACITY);
+        w.out.writeUTF(MainClass.SELECTION.name());
+        w.out.writeInt(MainClass.TOURNAMENT_SIZE);
+        w.out.writeInt(MainClass.MAX_MUTANTS);
+        w.out.writeBoolean(MainClass.BANDIT);
+        w.out.writeFloat(MainClass.CROSS_RATE);
+        w.out.writeUTF(MainClass.REGEX_START);
+        w.out.writeLong(rnd.nextLong());
+        w.out.writeInt(strings.size());
+        for (LabeledString l : strings) {
+            w.out.writeUTF(l.string);
+            w.out.writeBoolean(l.accepted);
+        }
+        w.out.flush();
+    }
+
+    private void spawnLocalWorker(int port) throws IOException {
+        // same JVM and class path of the coordinator, the worker gets everything else from the setup message
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                MainClass.class.getName(), "-worker", "localhost:" + port);
+        pb.inheritIO();
+        spawned.add(pb.start());
+    }
+
+    private static boolean hasAlive(List<Worker> workers) {
+        return countAlive(workers) > 0;
+    }
+
+    private static int countAlive(List<Worker> workers) {
+        int n = 0;
+        for (Worker w : workers) {
+            if (w.alive) n++;
+        }
+        return n;
+    }
+
+    private static List<RegexCandidate> best(List<RegexCandidate> candidates, int n) {
+        candidates.sort((r1, r2) -> Double.compare(r2.fitness, r1.fitness));
+        return candidates.subList(0, Math.min(n, candidates.size()));
+    }
+}
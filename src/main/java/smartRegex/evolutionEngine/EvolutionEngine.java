@@ -3,52 +3,338 @@ package smartRegex.evolutionEngine;
 import com.mifmif.common.regex.Generex;
 import dk.brics.automaton.Automaton;
 import dk.brics.automaton.RegExp;
+import regex.distinguishing.DistStringCreator;
+import regex.operators.AllMutators;
+import regex.operators.RangeModificationRandom;
+import regex.operators.RegexMutator;
+import regex.operators.SubtreeCrossover;
+import regex.utils.JoinedIterator;
 import smartRegex.MainClass;
 import smartRegex.utils.FailureResidualIndex;
 import smartRegex.utils.LabeledString;
 import smartRegex.utils.RegexCandidate;
+import smartRegex.utils.SeenSet;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-public abstract class EvolutionEngine {
+// An engine can run many times: every run starts from the initial population, while the strings and the threads of
+// the engine are kept until it is closed
+public abstract class EvolutionEngine implements AutoCloseable {
 
     private String REGEX_ORACLE, REGEX_UNIVERSE, REGEX_START;
     private int MAX_INFINITE;
     private int N_POP;
     int MAX_ITERATIONS, N_PARENTS, N_STRINGS;
+    // how many mutants of a parent are drawn, 0 means all of them
+    int MAX_MUTANTS;
     float HOM_PERCENTAGE;
     boolean USE_HOM, SPECIALIZE;
+    Selection SELECTION;
     FailureResidualIndex fri;
     List<RegexCandidate> pop, parents, offspring;
-    SplittableRandom rnd = new SplittableRandom();
+    // With -seed every random choice comes from rnd or from a generator split from it in a fixed order: each parent
+    // of a generation has its own generator, so the offspring do not depend on the thread that mutates the parent
+    SplittableRandom rnd;
+    List<SplittableRandom> parentRnds = new ArrayList<>();
+    // time and evaluation limits of the run, and its best regex so far
+    RunBudget budget = new RunBudget();
+    // the regexes evaluated in this run, with their fitness
+    SeenSet seen = new SeenSet(MainClass.DEDUP_CAPACITY);
+    // with -bandit, the share of the mutants of each operator
+    OperatorScheduler scheduler;
+    // with -crossrate, the parents of the generation (the population for the steady state engine)
+    private volatile List<RegExp> mates;
+    // plateau detection, with the generations run, the restarts and the criterion that stopped the run
+    Convergence convergence = new Convergence();
+    int generationsRun, restarts;
+    String convergedBy;
+    // with -checkpoint the state is written every checkpointEvery generations, with -resume the first run starts
+    // from it. Only the engine that owns the run has them, not its islands
+    private Checkpoint checkpoint;
+    private int checkpointEvery;
+    private boolean resume;
+    // with -library the final regexes of past runs, to start from and to store the result in
+    private RegexLibrary library;
+    // the regexes bounded in the last generations, each one with its bounded regex and the fitness of it
+    private Map<String, RegexCandidate> boundCache;
+    private AtomicLong boundKept = new AtomicLong(), boundWorse = new AtomicLong(), boundEvaluated = new AtomicLong();
+    private boolean started = false;
     public static List<LabeledString> strings = new ArrayList<>();
 
     EvolutionEngine() {
+        this(true);
+    }
+
+    // engines that are part of another one (e.g. islands) share its strings, so they do not generate them again
+    EvolutionEngine(boolean initStrings) {
+        rnd = MainClass.SEED != null ? new SplittableRandom(MainClass.SEED) : new SplittableRandom();
         HOM_PERCENTAGE = MainClass.HOM_PERC;
         USE_HOM = MainClass.USE_HOM;
         N_POP = MainClass.N_POP;
         MAX_ITERATIONS = MainClass.N_ITER;
         N_PARENTS = MainClass.N_PARENTS;
+        MAX_MUTANTS = MainClass.MAX_MUTANTS;
+        if (MainClass.BANDIT) {
+            scheduler = new OperatorScheduler();
+            if (MAX_MUTANTS == 0) {
+                MAX_MUTANTS = OperatorScheduler.DEFAULT_BUDGET;
+            }
+        }
         N_STRINGS = MainClass.N_STRINGS;
         REGEX_ORACLE = MainClass.REGEX_ORACLE;
         REGEX_UNIVERSE = MainClass.REGEX_UNIVERSE;
         REGEX_START = MainClass.REGEX_START;
         MAX_INFINITE = MainClass.MAX_INFINITE;
         SPECIALIZE = MainClass.SPECIALIZE;
+        SELECTION = MainClass.SELECTION;
+        boundCache = new BoundCache(4 * N_POP);
         pop = new ArrayList<>();
         parents = new ArrayList<>();
         offspring = new ArrayList<>();
-        if (MainClass.useFile)
-            strings = MainClass.strings;
-        else {
-            initializeTestStrings();
-            fri = new FailureResidualIndex(new RegExp(REGEX_ORACLE), new RegExp(REGEX_START));
+        if (initStrings) {
+            checkpointEvery = MainClass.CHECKPOINT_EVERY;
+            resume = MainClass.RESUME;
+            if (checkpointEvery > 0 || resume) {
+                checkpoint = new Checkpoint(MainClass.CHECKPOINT_FILE);
+            }
+            if (MainClass.LIBRARY != null) {
+                library = new RegexLibrary(MainClass.LIBRARY);
+            }
+            if (MainClass.SEED != null) {
+                DistStringCreator.setSeed(rnd.nextLong());
+            }
+            if (MainClass.useFile)
+                strings = MainClass.strings;
+            else {
+                initializeTestStrings();
+                fri = new FailureResidualIndex(new RegExp(REGEX_ORACLE), new RegExp(REGEX_START));
+            }
         }
         initializePop();
     }
 
     public abstract double[] run();
 
+    // stops the threads of the engine, it cannot run anymore
+    @Override
+    public void close() {}
+
+    // called at the beginning of run()
+    void startRun() {
+        if (started) {
+            pop.clear();
+            parents.clear();
+            offspring.clear();
+            initializePop();
+            if (fri != null) {
+                fri.numFinalFaults = 0;
+            }
+        }
+        started = true;
+        budget = budget.restart();
+        boundCache.clear();
+        if (library != null && MainClass.WARM_FRACTION > 0) {
+            warmStart();
+        }
+        seen.clear();
+        for (RegexCandidate r : pop) {
+            seen.put(r);
+        }
+        if (scheduler != null) {
+            scheduler.reset();
+        }
+        convergence.reset();
+        generationsRun = 0;
+        restarts = 0;
+        convergedBy = null;
+        if (checkpoint != null && populations() == null) {
+            if (resume) {
+                throw new RuntimeException("This engine cannot resume from a checkpoint");
+            }
+            System.out.println("This engine does not write checkpoints");
+            checkpoint = null;
+        }
+        // the engines start their generations from generationsRun
+        if (resume) {
+            resume = false;
+            if (checkpoint.exists()) {
+                try {
+                    checkpoint.read(this);
+                } catch (RuntimeException e) {
+                    // stderr is silenced by FailureResidualIndex
+                    System.out.println("Cannot resume: " + e.getMessage());
+                    throw e;
+                }
+            } else {
+                System.out.println("No checkpoint to resume from, the run starts from " + REGEX_START);
+            }
+        }
+    }
+
+    // Part of each population is replaced by the regexes of the library evolved on the strings nearest to these ones,
+    // the nearest first
+    private void warmStart() {
+        library.load();
+        RegexLibrary.Fingerprint fingerprint = RegexLibrary.Fingerprint.of(strings);
+        List<EvolutionEngine> populations = populations() != null ? populations() : Collections.singletonList(this);
+        List<RegexLibrary.Entry> nearest = Collections.emptyList();
+        for (EvolutionEngine p : populations) {
+            nearest = library.nearest(fingerprint, Math.round(p.pop.size() * MainClass.WARM_FRACTION));
+            for (int i = 0; i < nearest.size(); i++) {
+                p.pop.set(i, new RegexCandidate(nearest.get(i).regex));
+                p.seen.put(p.pop.get(i));
+            }
+        }
+        if (nearest.isEmpty()) {
+            System.out.println("Warm start: the library " + MainClass.LIBRARY + " is empty, the run starts from " + REGEX_START);
+        } else {
+            System.out.println("Warm start: " + nearest.size() + " regexes of " + library.size() + " in the library, the nearest "
+                    + nearest.get(0).regex + " at distance " + (float) nearest.get(0).distance);
+        }
+    }
+
+    // the populations of the engine, each one with its own generator, that are written to a checkpoint. Null if the
+    // engine cannot write checkpoints
+    List<EvolutionEngine> populations() {
+        return Collections.singletonList(this);
+    }
+
+    boolean converged() {
+        return converged(1, pop);
+    }
+
+    // Checked at the end of every generation (of every epoch for the islands) on the population that goes on:
+    // true if the run has converged and has to stop. With -onconverge restart the population starts again instead,
+    // as long as there are generations left. A run that goes on writes its checkpoint when it is due
+    boolean converged(int generations, List<RegexCandidate> population) {
+        generationsRun += generations;
+        budget.generation(generationsRun);
+        if (plateau(generations, population)) {
+            return true;
+        }
+        if (checkpoint != null && checkpointEvery > 0 && generationsRun < MAX_ITERATIONS
+                && generationsRun / checkpointEvery > (generationsRun - generations) / checkpointEvery) {
+            checkpoint.write(this);
+        }
+        return false;
+    }
+
+    private boolean plateau(int generations, List<RegexCandidate> population) {
+        if (!convergence.enabled()) {
+            return false;
+        }
+        String reason = convergence.check(population, generations);
+        if (reason == null) {
+            return false;
+        }
+        if (MainClass.RESTART_ON_CONVERGE && generationsRun < MAX_ITERATIONS && restart()) {
+            restarts++;
+            System.out.println("Converged (" + reason + "): restart " + restarts + " from the best regex and " + REGEX_START);
+            convergence.reset();
+            return false;
+        }
+        convergedBy = reason;
+        return true;
+    }
+
+    // The population goes back to the initial one, but for the best individual that is kept. The regexes evaluated
+    // so far are forgotten. False if the engine cannot restart
+    boolean restart() {
+        pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
+        RegexCandidate best = pop.get(pop.size() - 1);
+        RegexCandidate start = new RegexCandidate(REGEX_START);
+        pop.clear();
+        for (int i = 1; i < N_POP; i++) {
+            pop.add(start.copy());
+        }
+        pop.add(best);
+        seen.clear();
+        for (RegexCandidate r : pop) {
+            seen.put(r);
+        }
+        return true;
+    }
+
+    // Checked as soon as a mutant is produced. If the same regex has already been evaluated in this run, the
+    // candidate of the mutant with the fitness of that time: it is not built and evaluated again, but it competes
+    // again for a place in the population. Null if the regex is new
+    public RegexCandidate known(RegexMutator.MutatedRegExp mutant, double parentFitness) {
+        RegexCandidate c = seen.get(mutant.string());
+        if (c != null) {
+            c.operator = mutant.description;
+            c.parentFitness = parentFitness;
+        }
+        return c;
+    }
+
+    // a regex just evaluated, for the mutants that produce it again
+    public void remember(RegexCandidate c) {
+        seen.put(c);
+    }
+
+    // The candidate of a mutant: known, or built and evaluated if the budget allows it. Null if the budget is over
+    public RegexCandidate evaluateMutant(RegexMutator.MutatedRegExp mutant, double parentFitness) {
+        RegexCandidate c = known(mutant, parentFitness);
+        if (c == null) {
+            c = new RegexCandidate(mutant, parentFitness);
+            if (!evaluate(c)) {
+                return null;
+            }
+            remember(c);
+        }
+        return c;
+    }
+
+    static void shutdown(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void setIncumbentListener(IncumbentListener listener) {
+        budget.setListener(listener);
+    }
+
+    // Computes the fitness of c if the budget allows one more evaluation, otherwise the engine has to stop.
+    // Every evaluated regex is a candidate for the final result, also if it never enters the population
+    public boolean evaluate(RegexCandidate c) {
+        if (!budget.take()) {
+            return false;
+        }
+        if (scheduler != null) {
+            long start = System.nanoTime();
+            c.fitness();
+            scheduler.cost(c, System.nanoTime() - start);
+        } else {
+            c.fitness();
+        }
+        budget.offer(c);
+        return true;
+    }
+
+    // for the engines that compute the fitness in their own way
+    void evaluated(List<RegexCandidate> candidates) {
+        budget.add(candidates.size());
+        for (RegexCandidate c : candidates) {
+            budget.offer(c);
+        }
+    }
+
+    boolean budgetExhausted() {
+        return budget.exhausted();
+    }
+
+    // how the engine uses the thread budget (MainClass.N_THREADS), printed before the run
+    public String schedulingPolicy() {
+        return "single thread";
+    }
+
     private void initializeTestStrings() {
         // Generating string from the given regexps
         RegExp rU = new RegExp(REGEX_UNIVERSE);
@@ -57,10 +343,12 @@ public abstract class EvolutionEngine {
         Automaton aU = rU.toAutomaton();
         Automaton aO_comp = aU.intersection(aO.complement());
         Generex generex = new Generex(aO);
+        generex.setSeed(rnd.nextLong());
         for (int i = 0; i < N_STRINGS/2; i++) {
             strings.add(new LabeledString(generex.random(), true));
         }
         generex = new Generex(aO_comp);
+        generex.setSeed(rnd.nextLong());
         for (int i = 0; i < N_STRINGS/2; i++) {
             strings.add(new LabeledString(generex.random(), false));
         }
@@ -74,43 +362,91 @@ public abstract class EvolutionEngine {
     }
 
     void selectParents() {
-        // Each individual has a range proportional to the fit and is chosen as the parent if the random falls in its range.
         // The number of parents is fixed, each individual can only be chosen once
-        double sum = 0;
-        for (RegexCandidate r: pop) {
-            sum += r.fitness;
-        }
-        if (sum <= 0) {
-            throw new RuntimeException("The sum of all fitness is <= 0!!!");
-        }
-        double[] ranges = new double[pop.size()];
-        double lastFit = 0;
-        for (int i = 0; i < pop.size(); i++) {
-            ranges[i] = lastFit + pop.get(i).fitness / sum;
-            lastFit = ranges[i];
-        }
-        HashSet<Integer> chosen = new HashSet<>();
-        for (int i = 0; i < N_PARENTS; i++) {
-            int index = 0;
-            do {
-                double t = rnd.nextDouble();
-                for (int j = 0; j < N_POP; j++) {
-                    if (t < ranges[j]) {
-                        index = j;
-                        break;
-                    }
-                }
-            } while (chosen.contains(index));
-            chosen.add(index);
+        double[] fitness = new double[pop.size()];
+        for (int i = 0; i < fitness.length; i++) {
+            fitness[i] = pop.get(i).fitness;
+        }
+        for (int index : SELECTION.select(fitness, N_PARENTS, rnd)) {
             parents.add(pop.get(index));
         }
+        setMates(parents);
+        parentRnds.clear();
+        for (int i = 0; i < parents.size(); i++) {
+            parentRnds.add(rnd.split());
+        }
+    }
+
+    // the regexes a parent can be crossed with, read by the mutation threads
+    void setMates(List<RegexCandidate> candidates) {
+        List<RegExp> m = new ArrayList<>();
+        for (RegexCandidate c : candidates) {
+            m.add(c.regex);
+        }
+        mates = m;
+    }
+
+    // the random choices of the mutation operators (RMR) are taken from the generator of the task
+    // With MAX_MUTANTS the mutants are drawn from taskRnd too, and only the drawn ones are built
+    public Iterator<RegexMutator.MutatedRegExp> mutate(RegExp regex, SplittableRandom taskRnd) {
+        RangeModificationRandom.setRandom(taskRnd);
+        Iterator<RegexMutator.MutatedRegExp> it;
+        if (scheduler != null) {
+            it = scheduler.counted(AllMutators.mutator.mutateSample(regex, MAX_MUTANTS, taskRnd, scheduler.shares()));
+        } else if (MAX_MUTANTS > 0) {
+            it = AllMutators.mutator.mutateSample(regex, MAX_MUTANTS, taskRnd);
+        } else {
+            it = AllMutators.mutator.mutate(regex);
+        }
+        // with -crossrate the regex can also be crossed with a mate, after its mutants. Without it taskRnd is not
+        // touched, so the mutants are the same of a run without crossover
+        List<RegExp> m = mates;
+        if (MainClass.CROSS_RATE > 0 && m != null && !m.isEmpty()) {
+            SplittableRandom crossRnd = taskRnd.split();
+            if (crossRnd.nextDouble() < MainClass.CROSS_RATE) {
+                RegExp mate = m.get(crossRnd.nextInt(m.size()));
+                List<Iterator<RegexMutator.MutatedRegExp>> its = new ArrayList<>();
+                its.add(it);
+                its.add(SubtreeCrossover.cross(regex, mate, SubtreeCrossover.CHILDREN, crossRnd).iterator());
+                it = new JoinedIterator<>(its);
+            }
+        }
+        return it;
+    }
+
+    // the statistics of the mutants of the generation just closed. The counters are taken and reset at once, the
+    // steady state engine prints them while its workers go on
+    void printSearchStats() {
+        System.out.println("Duplicates: " + seen.report());
+        long kept = boundKept.getAndSet(0), worse = boundWorse.getAndSet(0), again = boundEvaluated.getAndSet(0);
+        if (kept + worse > 0) {
+            System.out.println("Bounded repeats: " + kept + " regexes bounded, " + worse + " left unbounded because worse, "
+                    + again + " evaluated again");
+        }
+        if (scheduler != null) {
+            System.out.println("Operators: " + scheduler.report());
+        }
+    }
+
+    // The HOM candidates are chosen by index, the offspring are sorted first so that the choice does not depend on
+    // the order in which the tasks delivered them
+    void sortOffspring() {
+        offspring.sort(Comparator.comparing(c -> c.string()));
     }
 
     void replaceWorst() {
+        // called once per generation when all the offspring have been produced
+        closeOffspring();
         //increasing order, first those to be replaced
         pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
-        //descending order, first the best
-        offspring.sort((r1, r2) -> Double.compare(r2.fitness, r1.fitness));
+        if (offspring.isEmpty()) {
+            // a generation cut by the budget
+            return;
+        }
+        //descending order, first the best. Ties are broken by the regex, so the order in which the threads produced
+        //the offspring does not matter
+        offspring.sort((r1, r2) -> r1.fitness != r2.fitness ? Double.compare(r2.fitness, r1.fitness)
+                : r1.string().compareTo(r2.string()));
         int nSubs = 0;
         for (RegexCandidate starter: pop) {
             RegexCandidate sub = offspring.get(nSubs);
@@ -124,60 +460,166 @@ public abstract class EvolutionEngine {
             }
         }
         for (RegexCandidate r : pop){
-            r.regex = new RegExp(r.regex.toString()
-                    .replace("*", "+")
-                    .replace("?", "+")
-                    .replace("{1,}", "{1," + (2+rnd.nextInt(MAX_INFINITE -1)) + "}"));
+            boundRepeats(r, rnd);
+        }
+    }
+
+    // the statistics of the offspring of the generation, before they are merged into the population
+    void closeOffspring() {
+        seen.nextEpoch();
+        if (scheduler != null) {
+            for (RegexCandidate c : offspring) {
+                scheduler.record(c);
+            }
+            scheduler.nextGeneration();
+        }
+    }
+
+    // the bounded regexes of the last generations, the least recently used go first
+    private static class BoundCache extends LinkedHashMap<String, RegexCandidate> {
+        private static final long serialVersionUID = 1L;
+        private int capacity;
+
+        BoundCache(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RegexCandidate> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    // Bounds the repeats of c (see RepeatBounds). The bounded regex is evaluated, and c takes its automaton and
+    // fitness if it is not worse: otherwise c keeps its unbounded repeats, so that the search is not steered by a
+    // fitness that no individual has. With no evaluation left in the budget c stays as it is
+    void boundRepeats(RegexCandidate c, SplittableRandom rnd) {
+        RegexCandidate bounded = bounded(c, rnd);
+        if (bounded != null) {
+            keepBounded(c, bounded);
+        }
+    }
+
+    // The regex of c with its repeats bounded, evaluated. Null if c has no repeat to bound or the budget is over. A
+    // regex bounded in the last generations gets the same bounds without being evaluated again. Thread safe, the
+    // steady state engine calls it out of the population lock
+    RegexCandidate bounded(RegexCandidate c, SplittableRandom rnd) {
+        String s = c.string();
+        RegexCandidate bounded;
+        synchronized (boundCache) {
+            bounded = boundCache.get(s);
+        }
+        if (bounded == null) {
+            RegExp regex = RepeatBounds.bound(c.regex, MAX_INFINITE, rnd);
+            if (regex == c.regex) {
+                return null;
+            }
+            bounded = new RegexCandidate(regex);
+            if (!evaluate(bounded)) {
+                return null;
+            }
+            synchronized (boundCache) {
+                boundCache.put(s, bounded);
+            }
+            boundEvaluated.incrementAndGet();
+        }
+        return bounded;
+    }
+
+    // c takes the bounded regex if it is not worse
+    void keepBounded(RegexCandidate c, RegexCandidate bounded) {
+        if (bounded.fitness >= c.fitness) {
+            c.replace(bounded);
+            boundKept.incrementAndGet();
+        } else {
+            boundWorse.incrementAndGet();
+        }
+    }
+
+    void chooseFinalRegex() {
+        pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
+        // the best regex ever evaluated is not in the population if it has been found in the last generation before the
+        // budget stopped it. It is bounded like the individuals of the population
+        RegexCandidate incumbent = budget.incumbent();
+        if (incumbent != null && incumbent.fitness > pop.get(pop.size() - 1).fitness) {
+            pop.get(0).replace(incumbent);
+            boundRepeats(pop.get(0), rnd);
+            pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
+        }
+        String reason = budget.stopReason();
+        if (reason == null) {
+            reason = pop.get(pop.size() - 1).fitness > 0.96 ? "fitness > 0.96" : "number of generations";
+        }
+        if (budget.stopReason() == null && convergedBy != null) {
+            reason = "convergence (" + convergedBy + ")";
+        }
+        System.out.println("Stopped by " + reason + " after " + budget.evaluations() + " evaluations");
+        MainClass.stopReason = reason;
+        MainClass.generationsSaved = convergedBy != null ? Math.max(0, MAX_ITERATIONS - generationsRun) : 0;
+        MainClass.secondsToTarget = budget.targetNanos() < 0 ? -1 : budget.targetNanos()/1e9;
+        MainClass.evaluationsToTarget = budget.targetEvaluations();
+        MainClass.generationsToTarget = budget.targetNanos() < 0 ? -1 : budget.targetGeneration();
+        if (budget.targetNanos() >= 0) {
+            System.out.println("Fitness > " + RunBudget.TARGET + " reached after " + (float) MainClass.secondsToTarget
+                    + " sec, " + budget.targetEvaluations() + " evaluations and " + budget.targetGeneration() + " generations");
+        }
+        if (convergence.enabled()) {
+            System.out.println("Generations: " + generationsRun + " of " + MAX_ITERATIONS + ", restarts: " + restarts);
+        }
+        // the specialization takes its evaluations from the budget of the run
+        if (SPECIALIZE && budget.exhausted()) {
+            System.out.println("No " + (budget.timeExhausted() ? "time" : "evaluations")
+                    + " left: the final regex is not specialized");
+        }
+        if (SPECIALIZE && !budget.exhausted()) {
+            try {
+                specializeFinalRegex();
+            } catch (Exception e) {
+                System.out.println("Error. Cannot specialize regex");
+                MainClass.finalRegex = pop.get(pop.size() - 1);
+            }
+        } else {
+            MainClass.finalRegex = pop.get(pop.size() - 1);
+            if (fri != null) {
+                fri.computeRatio(MainClass.finalRegex.regex);
+                MainClass.finalFri = fri.numFinalFaults;
+            }
+        }
+        // the runs of -warmcompare only read the library, so that the two runs start from the same one
+        if (library != null && !MainClass.WARM_COMPARE) {
+            library.store(MainClass.finalRegex.string(), MainClass.finalRegex.fitness, Checkpoint.datasetHash(strings),
+                    RegexLibrary.Fingerprint.of(strings));
         }
     }
 
     void specializeFinalRegex(){
-        // If the regex contains {n, n} all the combinations are tested and the best one is chosen
+        // Every {n,m} of the best regex becomes {k,k}, with the values of k that give the best fitness
         pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
-        String best = pop.get(pop.size() - 1).regex.toString();
-        if (!best.contains("{")) {
+        // its repeats without an upper bound are bounded first, the specializer only works on {n,m}. If the bounds
+        // drawn make it worse the unbounded regex is the final one
+        RegexCandidate unbounded = pop.get(pop.size() - 1);
+        RegExp bounded = RepeatBounds.bound(unbounded.regex, MAX_INFINITE, rnd);
+        RegexCandidate start = bounded != unbounded.regex ? new RegexCandidate(bounded) : unbounded;
+        RegexCandidate best = Specializer.specialize(start, MainClass.N_THREADS, budget);
+        if (best == null) {
             throw new RuntimeException("Cannot specialize regex: no variable occurrences found!");
         }
-        // Getting all the n in the regex
-        String[] pz = best.replace("{", "£").replace("}", "£").replace(",", "£").split("£");
-        ArrayList<Integer> occurrences = new ArrayList<>();
-        for (String s: pz) {
-            if (s.length() == 1) {
-                try {
-                    occurrences.add(Integer.parseInt(s));
-                } catch (NumberFormatException ignored){}
-            }
-        }
-        int nClass = occurrences.size() / 2;
-        StringBuilder sb = new StringBuilder();
-        String[] classes = new String[nClass];
-        for (int i = 0; i < nClass; i++) {
-            int nStart = occurrences.get(i*2);
-            int nEnd = occurrences.get(i*2+1);
-            classes[i] = "\\{" + nStart + "," + nEnd + "}";
-            sb.append("[").append(nStart).append("-").append(nEnd).append("]");
-        }
-        // Generating all the possible combinations
-        Generex gen = new Generex(sb.toString());
-        List<String> combinations = gen.getAllMatchedStrings();
-        ArrayList<RegexCandidate> regexps = new ArrayList<>();
-        for (String s: combinations) {
-            RegexCandidate r = new RegexCandidate(replaceBraces(s, best, classes));
-            regexps.add(r);
-        }
-        regexps.sort(Comparator.comparingDouble(r -> r.fitness));
-        MainClass.finalRegex = regexps.get(regexps.size()-1);
+        if (bounded != unbounded.regex) {
+            // the specialized regexes are scored on the automaton, the population with -hyper is not: the unbounded
+            // regex is scored again before the two are compared
+            RegexCandidate scored = unbounded.copy();
+            scored.fitness();
+            if (best.fitness < scored.fitness) {
+                System.out.println("The bounded regex specializes to " + best.regex + " with fitness " + best.fitness
+                        + ": the final regex is left unbounded");
+                best = scored;
+            }
+        }
+        MainClass.finalRegex = best;
         if (fri != null) {
-            fri.computeRatio(regexps.get(regexps.size()-1).regex);
+            fri.computeRatio(best.regex);
             MainClass.finalFri = fri.numFinalFaults;
         }
     }
-
-    private String replaceBraces(String replacing, String regex, String[] replaced) {
-        // Replacing {n, n} with all possible combinations
-        for (int i = 0; i < replaced.length; i++) {
-            regex = regex.replaceFirst(replaced[i], "{" + replacing.charAt(i) + "}");
-        }
-        return regex;
-    }
 }
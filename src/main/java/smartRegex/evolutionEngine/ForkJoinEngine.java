@@ -0,0 +1,189 @@
+package smartRegex.evolutionEngine;
+
+import regex.operators.RegexMutator;
+import regex.utils.RegexFlags;
+import smartRegex.MainClass;
+import smartRegex.utils.RegexCandidate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ForkJoinEngine extends EvolutionEngine {
+
+    // max number of mutants evaluated by a single leaf task
+    private static final int EVAL_CHUNK = 8;
+
+    private ForkJoinPool pool;
+    private LongAdder busyNanos = new LongAdder();
+
+    public ForkJoinEngine() {
+        super();
+        pool = new ForkJoinPool(MainClass.N_THREADS);
+    }
+
+    @Override
+    public String schedulingPolicy() {
+        return "fork/join pool with parallelism " + pool.getParallelism() + ", one task per parent, evaluations in chunks of " + EVAL_CHUNK;
+    }
+
+    @Override
+    public void close() {
+        shutdown(pool);
+    }
+
+    @Override
+    public double[] run() {
+        startRun();
+        double[] profData = new double[2];
+        for (int i = generationsRun; i < MAX_ITERATIONS; i++) {
+            System.out.println("******************************** FJ Iteration " + (i+1) + " ********************************");
+            Long time1 = System.nanoTime();
+            long steals = pool.getStealCount();
+            busyNanos.reset();
+            selectParents();
+            offspring.addAll(pool.invoke(new MutationTask(parents, parentRnds, 0, parents.size())));
+            if (USE_HOM) {
+                sortOffspring();
+                offspring.addAll(pool.invoke(homTask()));
+            }
+            replaceWorst();
+            profData[1] += offspring.size();
+            System.out.println("Parents: " + parents.size() + " Offspring: " + offspring.size());
+            System.out.println("Generation best: " + pop.get(pop.size()-1).regex + " with fitness " + pop.get(pop.size()-1).fitness);
+            printSearchStats();
+            parents.clear();
+            offspring.clear();
+            Long time2 = System.nanoTime();
+            System.out.println("Time this generation: " + (time2 - time1)/1e9f + " sec");
+            // busy time of all the leaf tasks over the time all the workers had available
+            double utilization = busyNanos.sum() / ((double) (time2 - time1) * pool.getParallelism());
+            System.out.println("Core utilization this generation: " + String.format("%.1f", utilization * 100) + "% on "
+                    + pool.getParallelism() + " workers (" + (pool.getStealCount() - steals) + " steals)\n");
+
+            if (fri != null) {
+                double lastnum = fri.numFinalFaults;
+                fri.computeRatio(pop.get(pop.size() - 1).regex);
+                System.out.println("Fault index this generation over last one: " + fri.numFinalFaults + " / " + lastnum + " --> Ratio: " + (fri.numFinalFaults / lastnum));
+                System.out.println("Fault index this generation over initial one: " + fri.numFinalFaults + " / " + fri.numInitialFaults + " --> Ratio: " + (fri.numFinalFaults / fri.numInitialFaults));
+            }
+            profData[0] += ((time2 - time1)/1e6f);
+            if (pop.get(pop.size()-1).fitness > 0.96 || budgetExhausted() || converged()) {
+                break;
+            }
+        }
+        chooseFinalRegex();
+        return profData;
+    }
+
+    private MutationTask homTask() {
+        // The offspring that receive the second order mutation are chosen here, the mutation itself is
+        // split in tasks like the first order one
+        int size = offspring.size();
+        int n = (int) (size * HOM_PERCENTAGE);
+        boolean[] chosen = new boolean[size];
+        List<RegexCandidate> homParents = new ArrayList<>();
+        List<SplittableRandom> rnds = new ArrayList<>();
+        while (homParents.size() < n) {
+            int index;
+            do {
+                index = rnd.nextInt(size);
+            } while (chosen[index]);
+            chosen[index] = true;
+            homParents.add(offspring.get(index));
+            rnds.add(rnd.split());
+        }
+        return new MutationTask(homParents, rnds, 0, homParents.size());
+    }
+
+    private class MutationTask extends RecursiveTask<List<RegexCandidate>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private List<RegexCandidate> parents;
+        // rnds.get(i) is the generator of the mutation of parents.get(i)
+        private List<SplittableRandom> rnds;
+        private int from, to;
+
+        MutationTask(List<RegexCandidate> parents, List<SplittableRandom> rnds, int from, int to) {
+            this.parents = parents;
+            this.rnds = rnds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<RegexCandidate> compute() {
+            // The parents are split until every task has only one of them, so that idle workers can steal the
+            // parents (and later the evaluations) of the busy ones
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                MutationTask left = new MutationTask(parents, rnds, from, mid);
+                left.fork();
+                List<RegexCandidate> right = new MutationTask(parents, rnds, mid, to).compute();
+                List<RegexCandidate> result = left.join();
+                result.addAll(right);
+                return result;
+            }
+            if (to == from) {
+                return new ArrayList<>();
+            }
+            long start = System.nanoTime();
+            List<RegexMutator.MutatedRegExp> mutants = new ArrayList<>();
+            RegexMutator.MutatedRegExp m;
+            Iterator<RegexMutator.MutatedRegExp> it = mutate(parents.get(from).regex, rnds.get(from));
+            while (it.hasNext()) {
+                //if it contains '~' I do not want it because it breaks the evolution by taking a high score only by having a correct side
+                if (!(m = it.next()).has(RegexFlags.COMPLEMENT)) {
+                    mutants.add(m);
+                }
+            }
+            busyNanos.add(System.nanoTime() - start);
+            return new FitnessTask(mutants, parents.get(from).fitness, 0, mutants.size()).compute();
+        }
+    }
+
+    private class FitnessTask extends RecursiveTask<List<RegexCandidate>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private List<RegexMutator.MutatedRegExp> mutants;
+        private double parentFitness;
+        private int from, to;
+
+        FitnessTask(List<RegexMutator.MutatedRegExp> mutants, double parentFitness, int from, int to) {
+            this.mutants = mutants;
+            this.parentFitness = parentFitness;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<RegexCandidate> compute() {
+            if (to - from > EVAL_CHUNK) {
+                int mid = (from + to) >>> 1;
+                FitnessTask left = new FitnessTask(mutants, parentFitness, from, mid);
+                left.fork();
+                List<RegexCandidate> right = new FitnessTask(mutants, parentFitness, mid, to).compute();
+                List<RegexCandidate> result = left.join();
+                result.addAll(right);
+                return result;
+            }
+            long start = System.nanoTime();
+            List<RegexCandidate> result = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                RegexCandidate c = evaluateMutant(mutants.get(i), parentFitness);
+                if (c == null) {
+                    break;
+                }
+                result.add(c);
+            }
+            busyNanos.add(System.nanoTime() - start);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package smartRegex.evolutionEngine;
+
+import smartRegex.utils.RegexCandidate;
+
+public interface IncumbentListener {
+
+    // Called while the run is in progress every time a better regex is evaluated, by the thread that evaluated it.
+    // The calls never overlap and best is a copy that the engine does not change anymore
+    void improved(RegexCandidate best, long evaluations, long elapsedNanos);
+}
@@ -0,0 +1,214 @@
+package smartRegex.evolutionEngine;
+
+import smartRegex.MainClass;
+import smartRegex.utils.RegexCandidate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class IslandEngine extends EvolutionEngine {
+
+    public enum Topology {
+        // every island sends its best to the next one
+        RING,
+        // every island receives the best of all the other ones
+        FULL,
+        // every island sends its best to another island chosen at random
+        RANDOM
+    }
+
+    private int N_ISLANDS, MIGRATION_INTERVAL, N_MIGRANTS;
+    private Topology topology;
+    private List<MonoThreadEngine> islands = new ArrayList<>();
+    private ExecutorService executor;
+
+    private int N_ISLAND_THREADS;
+
+    public IslandEngine() {
+        super();
+        N_ISLANDS = MainClass.N_ISLANDS;
+        // with more islands than threads the islands of an epoch wait for a free thread
+        N_ISLAND_THREADS = Math.min(N_ISLANDS, MainClass.N_THREADS);
+        MIGRATION_INTERVAL = MainClass.MIGRATION_INTERVAL;
+        N_MIGRANTS = MainClass.N_MIGRANTS;
+        topology = MainClass.TOPOLOGY;
+        for (int i = 0; i < N_ISLANDS; i++) {
+            // every island has its own population and random generator, the strings are shared
+            MonoThreadEngine island = new MonoThreadEngine(false);
+            island.rnd = rnd.split();
+            // the budget and the best regex so far are the ones of the whole run
+            island.budget = budget;
+            islands.add(island);
+        }
+        executor = Executors.newFixedThreadPool(N_ISLAND_THREADS);
+    }
+
+    @Override
+    public void close() {
+        shutdown(executor);
+    }
+
+    @Override
+    public String schedulingPolicy() {
+        return N_ISLANDS + " islands on " + N_ISLAND_THREADS + " threads";
+    }
+
+    @Override
+    public double[] run() {
+        for (MonoThreadEngine island : islands) {
+            island.startRun();
+        }
+        // after the islands, so that a checkpoint restores their populations
+        startRun();
+        for (MonoThreadEngine island : islands) {
+            island.budget = budget;
+        }
+        double[] profData = new double[2];
+        int generation = generationsRun;
+        while (generation < MAX_ITERATIONS) {
+            int nGen = Math.min(MIGRATION_INTERVAL, MAX_ITERATIONS - generation);
+            System.out.println("******************************** IS Generations " + (generation+1) + "-" + (generation+nGen) + " ********************************");
+            Long time1 = System.nanoTime();
+            // each island evolves on its own thread until the next migration
+            List<Callable<Integer>> epochs = new ArrayList<>();
+            for (MonoThreadEngine island : islands) {
+                epochs.add(() -> {
+                    int nOffspring = 0;
+                    for (int i = 0; i < nGen && !budgetExhausted(); i++) {
+                        nOffspring += island.generation();
+                    }
+                    return nOffspring;
+                });
+            }
+            try {
+                for (Future<Integer> f : executor.invokeAll(epochs)) {
+                    profData[1] += f.get();
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+            generation += nGen;
+            migrate();
+            RegexCandidate best = null;
+            for (int i = 0; i < N_ISLANDS; i++) {
+                RegexCandidate islandBest = islands.get(i).pop.get(islands.get(i).pop.size() - 1);
+                System.out.println("Island " + i + " best: " + islandBest.regex + " with fitness " + islandBest.fitness);
+                if (best == null || islandBest.fitness > best.fitness) {
+                    best = islandBest;
+                }
+            }
+            System.out.println("Best of all islands: " + best.regex + " with fitness " + best.fitness);
+            Long time2 = System.nanoTime();
+            System.out.println("Time these generations: " + (time2 - time1)/1e9f + " sec\n");
+
+            if (fri != null) {
+                double lastnum = fri.numFinalFaults;
+                fri.computeRatio(best.regex);
+                System.out.println("Fault index these generations over last ones: " + fri.numFinalFaults + " / " + lastnum + " --> Ratio: " + (fri.numFinalFaults / lastnum));
+                System.out.println("Fault index these generations over initial one: " + fri.numFinalFaults + " / " + fri.numInitialFaults + " --> Ratio: " + (fri.numFinalFaults / fri.numInitialFaults));
+            }
+            profData[0] += ((time2 - time1)/1e6f);
+            if (best.fitness > 0.96 || budgetExhausted() || converged(nGen, allIslands())) {
+                break;
+            }
+        }
+        // the final regex is chosen among the individuals of all the islands
+        pop.clear();
+        pop.addAll(allIslands());
+        chooseFinalRegex();
+        return profData;
+    }
+
+    @Override
+    List<EvolutionEngine> populations() {
+        return new ArrayList<>(islands);
+    }
+
+    private List<RegexCandidate> allIslands() {
+        List<RegexCandidate> all = new ArrayList<>();
+        for (MonoThreadEngine island : islands) {
+            all.addAll(island.pop);
+        }
+        return all;
+    }
+
+    // every island starts again from its own best
+    @Override
+    boolean restart() {
+        for (MonoThreadEngine island : islands) {
+            island.restart();
+        }
+        return true;
+    }
+
+    private void migrate() {
+        // the emigrants are copies, the individuals they come from can be replaced by other immigrants
+        List<List<RegexCandidate>> emigrants = new ArrayList<>();
+        for (MonoThreadEngine island : islands) {
+            island.pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
+            int size = island.pop.size();
+            List<RegexCandidate> best = new ArrayList<>();
+            for (int i = size - 1; i >= Math.max(0, size - N_MIGRANTS); i--) {
+                best.add(island.pop.get(i).copy());
+            }
+            emigrants.add(best);
+        }
+        List<List<RegexCandidate>> immigrants = destinations(emigrants, topology, rnd);
+        for (int i = 0; i < N_ISLANDS; i++) {
+            immigrate(islands.get(i).pop, immigrants.get(i), N_MIGRANTS);
+        }
+    }
+
+    // the candidates each island receives, given the ones that each island sends
+    static List<List<RegexCandidate>> destinations(List<List<RegexCandidate>> emigrants, Topology topology, SplittableRandom rnd) {
+        int n = emigrants.size();
+        List<List<RegexCandidate>> immigrants = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            immigrants.add(new ArrayList<>());
+        }
+        if (n < 2) {
+            return immigrants;
+        }
+        for (int i = 0; i < n; i++) {
+            switch (topology) {
+                case RING:
+                    immigrants.get((i + 1) % n).addAll(emigrants.get(i));
+                    break;
+                case FULL:
+                    for (int j = 0; j < n; j++) {
+                        if (j != i) {
+                            immigrants.get(j).addAll(emigrants.get(i));
+                        }
+                    }
+                    break;
+                case RANDOM:
+                    int j = rnd.nextInt(n - 1);
+                    immigrants.get(j >= i ? j + 1 : j).addAll(emigrants.get(i));
+                    break;
+            }
+        }
+        return immigrants;
+    }
+
+    // the best immigrants (at most max) replace the worst individuals of the population if they are better
+    static void immigrate(List<RegexCandidate> pop, List<RegexCandidate> immigrants, int max) {
+        pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
+        immigrants.sort((r1, r2) -> Double.compare(r2.fitness, r1.fitness));
+        for (int i = 0; i < Math.min(max, immigrants.size()) && i < pop.size(); i++) {
+            RegexCandidate starter = pop.get(i);
+            RegexCandidate sub = immigrants.get(i);
+            if (sub.fitness <= starter.fitness) {
+                break;
+            }
+            starter.replace(sub);
+        }
+        pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
+    }
+}
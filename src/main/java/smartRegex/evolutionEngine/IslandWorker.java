@@ -0,0 +1,102 @@
+package smartRegex.evolutionEngine;
+
+import dk.brics.automaton.RegExp;
+import smartRegex.MainClass;
+import smartRegex.utils.LabeledString;
+import smartRegex.utils.RegexCandidate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class IslandWorker {
+
+    // Protocol between the coordinator (DistributedIslandEngine) and a worker:
+    //   coordinator -> worker  once:        the evolution parameters, the seed and the labeled strings
+    //   coordinator -> worker  each epoch:  number of generations (> 0), immigrants, number of emigrants wanted,
+    //                                       milliseconds and evaluations left to the island (0: no limit)
+    //   worker -> coordinator  each epoch:  number of offspring generated, evaluations done, emigrants
+    //   coordinator -> worker  at the end:  0 generations
+    //   worker -> coordinator  at the end:  the whole population
+    // A candidate travels as its regex string and its fitness
+
+    public static void work(String host, int port) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            MainClass.N_POP = in.readInt();
+            MainClass.N_PARENTS = in.readInt();
+            MainClass.HOM_PERC = in.readFloat();
+            MainClass.USE_HOM = in.readBoolean();
+            MainClass.MAX_INFINITE = in.readInt();
+            MainClass.DEDUP_CAPACITY = in.readInt();
+            MainClass.SELECTION = Selection.valueOf(in.readUTF());
+            MainClass.TOURNAMENT_SIZE = in.readInt();
+            MainClass.MAX_MUTANTS = in.readInt();
+            MainClass.BANDIT = in.readBoolean();
+            MainClass.CROSS_RATE = in.readFloat();
+            MainClass.REGEX_START = in.readUTF();
+            long seed = in.readLong();
+            int nStrings = in.readInt();
+            List<LabeledString> strings = new ArrayList<>();
+            for (int i = 0; i < nStrings; i++) {
+                strings.add(new LabeledString(in.readUTF(), in.readBoolean()));
+            }
+            EvolutionEngine.strings = strings;
+            MonoThreadEngine island = new MonoThreadEngine(false);
+            island.rnd = new SplittableRandom(seed);
+            island.startRun();
+            System.out.println("Island worker connected to " + host + ":" + port + " with " + nStrings + " strings");
+            int nGen;
+            while ((nGen = in.readInt()) > 0) {
+                List<RegexCandidate> immigrants = readCandidates(in);
+                int nEmigrants = in.readInt();
+                // the epoch stops early when the part of the budget of the run given to this island is over
+                island.budget = new RunBudget(in.readLong(), in.readLong());
+                IslandEngine.immigrate(island.pop, immigrants, immigrants.size());
+                int nOffspring = 0;
+                for (int i = 0; i < nGen && !island.budgetExhausted(); i++) {
+                    nOffspring += island.generation();
+                }
+                island.pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
+                List<RegexCandidate> emigrants = new ArrayList<>();
+                for (int i = island.pop.size() - 1; i >= Math.max(0, island.pop.size() - nEmigrants); i--) {
+                    emigrants.add(island.pop.get(i));
+                }
+                out.writeInt(nOffspring);
+                out.writeLong(island.budget.evaluations());
+                writeCandidates(out, emigrants);
+                out.flush();
+            }
+            writeCandidates(out, island.pop);
+            out.flush();
+        }
+    }
+
+    static void writeCandidates(DataOutputStream out, List<RegexCandidate> candidates) throws IOException {
+        out.writeInt(candidates.size());
+        for (RegexCandidate r : candidates) {
+            out.writeUTF(r.string());
+            out.writeDouble(r.fitness);
+        }
+    }
+
+    static List<RegexCandidate> readCandidates(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        List<RegexCandidate> candidates = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            // the fitness comes with the regex, only the automaton is rebuilt
+            RegexCandidate r = new RegexCandidate(new RegExp(in.readUTF()));
+            r.fitness = in.readDouble();
+            candidates.add(r);
+        }
+        return candidates;
+    }
+}
@@ -1,31 +1,37 @@
 package smartRegex.evolutionEngine;
 
-import dk.brics.automaton.RegExp;
-import regex.operators.AllMutators;
 import regex.operators.RegexMutator;
-import smartRegex.MainClass;
+import regex.utils.RegexFlags;
 import smartRegex.utils.RegexCandidate;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Iterator;
 
 public class MonoThreadEngine extends EvolutionEngine {
 
+    // the parents of the last generation, the list is cleared at its end
+    int nParents;
+
+    public MonoThreadEngine() {
+        super();
+    }
+
+    MonoThreadEngine(boolean initStrings) {
+        super(initStrings);
+    }
+
     @Override
     public double[] run() {
+        startRun();
         double[] profData = new double[2];
-        for (int i = 0; i < MAX_ITERATIONS; i++) {
+        for (int i = generationsRun; i < MAX_ITERATIONS; i++) {
             System.out.println("******************************** ST Iteration " + (i+1) + " ********************************");
             Long time1 = System.nanoTime();
-            selectParents();
-            mutation();
-            replaceWorst();
-            profData[1] += offspring.size();
-            System.out.println("Parents: " + parents.size() + " Offspring: " + offspring.size());
+            int nOffspring = generation();
+            profData[1] += nOffspring;
+            System.out.println("Parents: " + nParents + " Offspring: " + nOffspring);
             System.out.println("Generation best: " + pop.get(pop.size()-1).regex + " with fitness " + pop.get(pop.size()-1).fitness);
-            parents.clear();
-            offspring.clear();
+            printSearchStats();
             Long time2 = System.nanoTime();
             System.out.println("Time this generation: " + (time2 - time1)/1e9f + " sec\n");
 
@@ -36,38 +42,39 @@ public class MonoThreadEngine extends EvolutionEngine {
                 System.out.println("Fault index this generation over initial one: " + fri.numFinalFaults + " / " + fri.numInitialFaults + " --> Ratio: " + (fri.numFinalFaults / fri.numInitialFaults));
             }
             profData[0] += ((time2 - time1)/1e6f);
-            if (pop.get(pop.size()-1).fitness > 0.96) {
+            if (pop.get(pop.size()-1).fitness > 0.96 || budgetExhausted() || converged()) {
                 break;
             }
         }
-        pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
-        if (SPECIALIZE) {
-            try {
-                specializeFinalRegex();
-            } catch (Exception e) {
-                System.out.println("Error. Cannot specialize regex");
-                MainClass.finalRegex = pop.get(pop.size() - 1);
-            }
-        } else {
-            MainClass.finalRegex = pop.get(pop.size() - 1);
-            if (fri != null) {
-                MainClass.finalFri = fri.numFinalFaults;
-            }
-        }
+        chooseFinalRegex();
         return profData;
     }
 
 
+    // one generation, returns the number of offspring generated
+    int generation() {
+        selectParents();
+        mutation();
+        replaceWorst();
+        int nOffspring = offspring.size();
+        nParents = parents.size();
+        parents.clear();
+        offspring.clear();
+        return nOffspring;
+    }
+
     private void mutation() {
-        RegExp regMutata;
+        RegexMutator.MutatedRegExp m;
         Iterator<RegexMutator.MutatedRegExp> it;
-        for (RegexCandidate r : parents) {
-            it = AllMutators.mutator.mutate(r.regex);
+        for (int i = 0; i < parents.size(); i++) {
+            it = mutate(parents.get(i).regex, parentRnds.get(i));
             while (it.hasNext()) {
                 //if it contains '~' I do not want it because it breaks the evolution by taking a high score only by having a correct side
-                if (!(regMutata = it.next().mutatedRexExp).toString().contains("~")) {
-                    RegexCandidate c = new RegexCandidate(regMutata);
-                    c.fitness();
+                if (!(m = it.next()).has(RegexFlags.COMPLEMENT)) {
+                    RegexCandidate c = evaluateMutant(m, parents.get(i).fitness);
+                    if (c == null) {
+                        return;
+                    }
                     offspring.add(c);
                 }
             }
@@ -84,11 +91,14 @@ public class MonoThreadEngine extends EvolutionEngine {
                 } while (chosen.contains(index));
                 chosen.add(index);
                 totalRegexAssigned++;
-                Iterator<RegexMutator.MutatedRegExp> it1 = AllMutators.mutator.mutate(offspring.get(index).regex);
+                RegexCandidate homParent = offspring.get(index);
+                Iterator<RegexMutator.MutatedRegExp> it1 = mutate(homParent.regex, rnd.split());
                 while (it1.hasNext()) {
-                    if (!(regMutata = it1.next().mutatedRexExp).toString().contains("~")) {
-                        RegexCandidate c = new RegexCandidate(regMutata);
-                        c.fitness();
+                    if (!(m = it1.next()).has(RegexFlags.COMPLEMENT)) {
+                        RegexCandidate c = evaluateMutant(m, homParent.fitness);
+                        if (c == null) {
+                            return;
+                        }
                         offspring.add(c);
                     }
                 }
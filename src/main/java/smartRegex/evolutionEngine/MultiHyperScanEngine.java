@@ -2,15 +2,16 @@ package smartRegex.evolutionEngine;
 
 import com.gliwka.hyperscan.wrapper.Database;
 import com.gliwka.hyperscan.wrapper.Expression;
+import com.gliwka.hyperscan.wrapper.ExpressionFlag;
 import smartRegex.MainClass;
 import smartRegex.utils.HyperScanThread;
 import smartRegex.utils.LabeledString;
 import smartRegex.utils.MutationThread;
 import smartRegex.utils.RegexCandidate;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CyclicBarrier;
@@ -18,13 +19,14 @@ import java.util.concurrent.CyclicBarrier;
 public class MultiHyperScanEngine extends MultiThreadV2Engine {
 
     private List<Expression> hyperOffspring;
-    public static Database regexDatabase;
-    private static double MAX_FIT;
+    private int N_SCAN_THREADS;
+    private Database regexDatabase;
+    private double MAX_FIT;
+    private CyclicBarrier hyperBarrierStart, hyperBarrierEnd;
 
     public MultiHyperScanEngine() {
         super();
-        hyperOffspring = new LinkedList<>();
-        hyperOffspring = Collections.synchronizedList(hyperOffspring);
+        hyperOffspring = new ArrayList<>();
         for (LabeledString l: EvolutionEngine.strings) {
             if (l.accepted) {
                 for (int i = 1; i <= l.string.length(); i++) {
@@ -32,29 +34,70 @@ public class MultiHyperScanEngine extends MultiThreadV2Engine {
                 }
             }
         }
+        // mutation and scan never overlap, so both use the whole budget
+        N_SCAN_THREADS = Math.min(strings.size(), MainClass.N_THREADS);
+    }
+
+    @Override
+    void startRun() {
+        super.startRun();
+        // the regexes of the run are remembered with the fitness of this engine
+        seen.clear();
         for (RegexCandidate r: pop) {
             r.normalizeFitness(5);
+            seen.put(r);
         }
     }
 
+    // The regexes evaluated one at a time, i.e. the bounded ones, are scanned like the offspring, so that they are
+    // compared with them on the same fitness. A regex Hyperscan refuses is not evaluated
     @Override
-    public double[] run() {
-        mutThreads = new MutationThread[N_PARENTS];
-        mutBarrierStart = new CyclicBarrier(N_PARENTS + 1);
-        mutBarrierEnd = new CyclicBarrier(N_PARENTS + 1);
-        for (int i = 0; i < N_PARENTS; i++) {
-            mutThreads[i] = new MutationThread(offspring, hyperOffspring, USE_HOM, N_HOM_THREADS, HOM_PERCENTAGE, mutBarrierStart, mutBarrierEnd);
-            new Thread(mutThreads[i]).start();
+    public boolean evaluate(RegexCandidate c) {
+        if (budgetExhausted()) {
+            return false;
         }
-        HyperScanThread[] hyperThreads = new HyperScanThread[N_STRINGS];
-        CyclicBarrier hyperBarrierStart = new CyclicBarrier(N_STRINGS + 1);
-        CyclicBarrier hyperBarrierEnd = new CyclicBarrier(N_STRINGS + 1);
-        for (int i = 0; i < N_STRINGS; i++) {
-            hyperThreads[i] = new HyperScanThread(strings.get(i), offspring, hyperBarrierStart, hyperBarrierEnd);
-            new Thread(hyperThreads[i]).start();
+        c.fitness = 0;
+        Expression e = new Expression(c.string().replace("\\", ""), EnumSet.of(ExpressionFlag.SOM_LEFTMOST), c);
+        try (Database db = Database.compile(e)) {
+            HyperScanThread.score(db, strings);
+        } catch (Throwable throwable) {
+            return false;
+        }
+        c.normalizeFitness(MAX_FIT);
+        evaluated(Collections.singletonList(c));
+        return true;
+    }
+
+    public Database database() {
+        return regexDatabase;
+    }
+
+    @Override
+    public String schedulingPolicy() {
+        return super.schedulingPolicy() + ", " + N_SCAN_THREADS + " scan threads for " + strings.size() + " strings";
+    }
+
+    @Override
+    public double[] run() {
+        startRun();
+        if (mutThreads == null) {
+            mutThreads = new MutationThread[N_MUT_THREADS];
+            mutBarrierStart = new CyclicBarrier(N_MUT_THREADS + 1);
+            mutBarrierEnd = new CyclicBarrier(N_MUT_THREADS + 1);
+            for (int i = 0; i < N_MUT_THREADS; i++) {
+                mutThreads[i] = new MutationThread(this, true, USE_HOM, N_HOM_THREADS, HOM_PERCENTAGE, mutBarrierStart, mutBarrierEnd);
+                startWorker(mutThreads[i]);
+            }
+            hyperBarrierStart = new CyclicBarrier(N_SCAN_THREADS + 1);
+            hyperBarrierEnd = new CyclicBarrier(N_SCAN_THREADS + 1);
+            for (int i = 0; i < N_SCAN_THREADS; i++) {
+                // every thread scans a contiguous slice of the strings
+                List<LabeledString> slice = strings.subList(i * strings.size() / N_SCAN_THREADS, (i + 1) * strings.size() / N_SCAN_THREADS);
+                startWorker(new HyperScanThread(this, slice, hyperBarrierStart, hyperBarrierEnd));
+            }
         }
         double[] profData = new double[2];
-        for (int i = 0; i < MAX_ITERATIONS; i++) {
+        for (int i = generationsRun; i < MAX_ITERATIONS; i++) {
             System.out.println("******************************** MT-Hyper Iteration " + (i+1) + " ********************************");
             Long time1 = System.nanoTime();
             selectParents();
@@ -68,30 +111,44 @@ public class MultiHyperScanEngine extends MultiThreadV2Engine {
             } catch (BrokenBarrierException | InterruptedException e) {
                 e.printStackTrace();
             }
-            System.out.println("Compiling Database...");
-            try {
-                regexDatabase = Database.compile(hyperOffspring);
-            } catch (Throwable throwable) {
-                throwable.printStackTrace();
-            }
-            System.out.println("Done.");
-            try {
-                hyperBarrierStart.await();
-            } catch (BrokenBarrierException | InterruptedException e) {
-                e.printStackTrace();
+            for (MutationThread t : mutThreads) {
+                t.drainInto(offspring, hyperOffspring);
             }
-            try {
-                hyperBarrierEnd.await();
-            } catch (BrokenBarrierException | InterruptedException e) {
-                e.printStackTrace();
+            // nothing to scan when all the offspring have already been scored
+            if (!hyperOffspring.isEmpty()) {
+                System.out.println("Compiling Database...");
+                try {
+                    regexDatabase = Database.compile(hyperOffspring);
+                } catch (Throwable throwable) {
+                    throwable.printStackTrace();
+                }
+                System.out.println("Done.");
+                try {
+                    hyperBarrierStart.await();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    e.printStackTrace();
+                }
+                try {
+                    hyperBarrierEnd.await();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    e.printStackTrace();
+                }
             }
-            for (RegexCandidate r: offspring) {
+            // the offspring already scored in the run are not scanned again
+            List<RegexCandidate> scanned = new ArrayList<>();
+            for (Expression e : hyperOffspring) {
+                RegexCandidate r = (RegexCandidate) e.getContext();
                 r.normalizeFitness(MAX_FIT);
+                remember(r);
+                scanned.add(r);
             }
+            // the offspring are scanned all together, the budget is checked once per generation
+            evaluated(scanned);
             replaceWorst();
             profData[1] += offspring.size();
             System.out.println("Parents: " + parents.size() + " Offspring: " + offspring.size());
             System.out.println("Generation best: " + pop.get(pop.size()-1).regex + " with fitness " + pop.get(pop.size()-1).fitness);
+            printSearchStats();
             parents.clear();
             offspring.clear();
             hyperOffspring.clear();
@@ -105,26 +162,11 @@ public class MultiHyperScanEngine extends MultiThreadV2Engine {
                 System.out.println("Fault index this generation over initial one: " + fri.numFinalFaults + " / " + fri.numInitialFaults + " --> Ratio: " + (fri.numFinalFaults / fri.numInitialFaults));
             }
             profData[0] += ((time2 - time1)/1e6f);
-        }
-        finish = true;
-        hyperBarrierStart.reset();
-        hyperBarrierEnd.reset();
-        mutBarrierStart.reset();
-        mutBarrierEnd.reset();
-        pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
-        if (SPECIALIZE) {
-            try {
-                specializeFinalRegex();
-            } catch (Exception e) {
-                System.out.println("Error. Cannot specialize regex");
-                MainClass.finalRegex = pop.get(pop.size() - 1);
-            }
-        } else {
-            MainClass.finalRegex = pop.get(pop.size() - 1);
-            if (fri != null) {
-                MainClass.finalFri = fri.numFinalFaults;
+            if (budgetExhausted() || converged()) {
+                break;
             }
         }
+        chooseFinalRegex();
         return profData;
     }
 }
@@ -1,55 +1,86 @@
 package smartRegex.evolutionEngine;
 
-import dk.brics.automaton.RegExp;
-import regex.operators.AllMutators;
 import regex.operators.RegexMutator;
+import regex.utils.RegexFlags;
 import smartRegex.MainClass;
 import smartRegex.utils.RegexCandidate;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class MultiThreadEngine extends EvolutionEngine {
 
-    private List<Thread> mutationThreads = new ArrayList<>();
-    private List<Thread> HOMThreads = new ArrayList<>();
+    private List<Future<?>> mutationTasks = new ArrayList<>();
+    private List<Future<?>> HOMTasks = new ArrayList<>();
+    // every task fills its own buffer, they are concatenated into offspring after the join
+    private List<List<RegexCandidate>> buffers = new ArrayList<>();
+    // one task per parent and per HOM candidate, run by at most N_THREADS threads
+    private ExecutorService executor;
+    private String name, policy;
 
     public MultiThreadEngine() {
+        this(Executors.newFixedThreadPool(MainClass.N_THREADS), "MT",
+                "pool of " + MainClass.N_THREADS + " threads, one task per parent and per HOM candidate");
+    }
+
+    MultiThreadEngine(ExecutorService executor, String name, String policy) {
         super();
-        offspring = Collections.synchronizedList(offspring);
+        this.executor = executor;
+        this.name = name;
+        this.policy = policy;
+    }
+
+    @Override
+    public String schedulingPolicy() {
+        return policy;
+    }
+
+    @Override
+    public void close() {
+        shutdown(executor);
     }
 
     @Override
     public double[] run() {
+        startRun();
         double[] profData = new double[2];
-        for (int i = 0; i < MAX_ITERATIONS; i++) {
-            System.out.println("******************************** MT Iteration " + (i+1) + " ********************************");
+        for (int i = generationsRun; i < MAX_ITERATIONS; i++) {
+            System.out.println("******************************** " + name + " Iteration " + (i+1) + " ********************************");
             Long time1 = System.nanoTime();
             selectParents();
             multiMutation();
-            for (Thread t : mutationThreads) {
+            for (Future<?> t : mutationTasks) {
                 try {
-                    t.join();
-                } catch (InterruptedException e) {
+                    t.get();
+                } catch (InterruptedException | ExecutionException e) {
                     e.printStackTrace();
                 }
             }
-            if (USE_HOM)
+            mergeBuffers();
+            if (USE_HOM) {
+                sortOffspring();
                 multiHOM(offspring);
-            for (Thread t : HOMThreads) {
+            }
+            for (Future<?> t : HOMTasks) {
                 try {
-                    t.join();
-                } catch (InterruptedException e) {
+                    t.get();
+                } catch (InterruptedException | ExecutionException e) {
                     e.printStackTrace();
                 }
             }
+            mergeBuffers();
             replaceWorst();
             profData[1] += offspring.size();
             System.out.println("Parents: " + parents.size() + " Offspring: " + offspring.size());
             System.out.println("Generation best: " + pop.get(pop.size()-1).regex + " with fitness " + pop.get(pop.size()-1).fitness);
+            printSearchStats();
             parents.clear();
             offspring.clear();
-            mutationThreads.clear();
-            HOMThreads.clear();
+            mutationTasks.clear();
+            HOMTasks.clear();
             Long time2 = System.nanoTime();
             System.out.println("Time this generation: " + (time2 - time1)/1e9f + " sec\n");
 
@@ -60,45 +91,36 @@ public class MultiThreadEngine extends EvolutionEngine {
                 System.out.println("Fault index this generation over initial one: " + fri.numFinalFaults + " / " + fri.numInitialFaults + " --> Ratio: " + (fri.numFinalFaults / fri.numInitialFaults));
             }
             profData[0] += ((time2 - time1)/1e6f);
-            if (pop.get(pop.size()-1).fitness > 0.96) {
+            if (pop.get(pop.size()-1).fitness > 0.96 || budgetExhausted() || converged()) {
                 break;
             }
         }
-        pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
-        if (SPECIALIZE) {
-            try {
-                specializeFinalRegex();
-            } catch (Exception e) {
-                System.out.println("Error. Cannot specialize regex");
-                MainClass.finalRegex = pop.get(pop.size() - 1);}
-        } else {
-            MainClass.finalRegex = pop.get(pop.size() - 1);
-            if (fri != null) {
-                MainClass.finalFri = fri.numFinalFaults;
-            }
-        }
+        chooseFinalRegex();
         return profData;
     }
 
     private  void multiMutation() {
-        for (RegexCandidate r : parents) {
-            mutationThreads.add(new Thread(() -> {
-                RegExp regMutata;
+        for (int i = 0; i < parents.size(); i++) {
+            final RegexCandidate r = parents.get(i);
+            final SplittableRandom taskRnd = parentRnds.get(i);
+            List<RegexCandidate> buffer = new ArrayList<>();
+            buffers.add(buffer);
+            mutationTasks.add(executor.submit(() -> {
+                RegexMutator.MutatedRegExp m;
                 Iterator<RegexMutator.MutatedRegExp> it;
-                it = AllMutators.mutator.mutate(r.regex);
+                it = mutate(r.regex, taskRnd);
                 while (it.hasNext()) {
                     //if it contains '~' I do not want it because it breaks the evolution by taking a high score only by having a correct side
-                    if (!(regMutata = it.next().mutatedRexExp).toString().contains("~")) {
-                        RegexCandidate c = new RegexCandidate(regMutata);
-                        c.fitness();
-                        offspring.add(c);
+                    if (!(m = it.next()).has(RegexFlags.COMPLEMENT)) {
+                        RegexCandidate c = evaluateMutant(m, r.fitness);
+                        if (c == null) {
+                            return;
+                        }
+                        buffer.add(c);
                     }
                 }
             }));
         }
-        for (Thread t : mutationThreads){
-            t.start();
-        }
     }
 
     private void multiHOM(final List<RegexCandidate> offspring) {
@@ -114,21 +136,30 @@ public class MultiThreadEngine extends EvolutionEngine {
             chosen.add(index);
             totalRegexAssigned++;
             final RegexCandidate r = offspring.get(index);
-            HOMThreads.add(new Thread(() -> {
-                RegExp regMutata;
+            final SplittableRandom taskRnd = rnd.split();
+            List<RegexCandidate> buffer = new ArrayList<>();
+            buffers.add(buffer);
+            HOMTasks.add(executor.submit(() -> {
+                RegexMutator.MutatedRegExp m;
                 Iterator<RegexMutator.MutatedRegExp> it;
-                it = AllMutators.mutator.mutate(r.regex);
+                it = mutate(r.regex, taskRnd);
                 while (it.hasNext()) {
-                    if (!(regMutata = it.next().mutatedRexExp).toString().contains("~")) {
-                        RegexCandidate c = new RegexCandidate(regMutata);
-                        c.fitness();
-                        offspring.add(c);
+                    if (!(m = it.next()).has(RegexFlags.COMPLEMENT)) {
+                        RegexCandidate c = evaluateMutant(m, r.fitness);
+                        if (c == null) {
+                            return;
+                        }
+                        buffer.add(c);
                     }
                 }
             }));
         }
-        for (Thread t : HOMThreads){
-            t.start();
+    }
+
+    private void mergeBuffers() {
+        for (List<RegexCandidate> buffer : buffers) {
+            offspring.addAll(buffer);
         }
+        buffers.clear();
     }
 }
@@ -1,37 +1,60 @@
 package smartRegex.evolutionEngine;
 
+import regex.operators.RegexMutator;
 import smartRegex.MainClass;
 import smartRegex.utils.MutationThread;
+import smartRegex.utils.RegexCandidate;
 
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.LongAdder;
 
 public class MultiThreadV2Engine extends EvolutionEngine {
 
     MutationThread[] mutThreads;
     CyclicBarrier mutBarrierStart, mutBarrierEnd;
-    int N_HOM_THREADS;
-    public static volatile boolean finish = false;
+    int N_MUT_THREADS, N_HOM_THREADS;
+    // the workers wait in the barriers between the runs, they stop when the engine is closed
+    private volatile boolean finish = false;
+    private List<Thread> workers = new ArrayList<>();
+    // The regexes that some thread is building and evaluating right now. Another thread that produces the same
+    // regex meanwhile waits for that result instead of doing the same work again
+    private ConcurrentHashMap<String, CompletableFuture<RegexCandidate>> inFlight = new ConcurrentHashMap<>();
+    private LongAdder shared = new LongAdder(), sharedWaitNanos = new LongAdder();
 
     public MultiThreadV2Engine() {
         super();
-        offspring = Collections.synchronizedList(offspring);
-        N_HOM_THREADS = MainClass.N_HOM_THREADS;
+        // The mutation threads never run together with their own HOM threads, so the budget is split among
+        // the mutation threads and each of them gets its share for the HOM phase
+        N_MUT_THREADS = Math.min(N_PARENTS, MainClass.N_THREADS);
+        N_HOM_THREADS = MainClass.N_THREADS / N_MUT_THREADS;
+    }
+
+    @Override
+    public String schedulingPolicy() {
+        return N_MUT_THREADS + " mutation threads for " + N_PARENTS + " parents, "
+                + (N_HOM_THREADS < 2 ? "HOM done by the mutation threads" : N_HOM_THREADS + " HOM threads each");
     }
 
     @Override
     public double[] run() {
-        mutThreads = new MutationThread[N_PARENTS];
-        mutBarrierStart = new CyclicBarrier(N_PARENTS + 1);
-        mutBarrierEnd = new CyclicBarrier(N_PARENTS + 1);
-        for (int i = 0; i < N_PARENTS; i++) {
-            mutThreads[i] = new MutationThread(offspring, USE_HOM, N_HOM_THREADS, HOM_PERCENTAGE, mutBarrierStart, mutBarrierEnd);
-            new Thread(mutThreads[i]).start();
+        startRun();
+        if (mutThreads == null) {
+            mutThreads = new MutationThread[N_MUT_THREADS];
+            mutBarrierStart = new CyclicBarrier(N_MUT_THREADS + 1);
+            mutBarrierEnd = new CyclicBarrier(N_MUT_THREADS + 1);
+            for (int i = 0; i < N_MUT_THREADS; i++) {
+                mutThreads[i] = new MutationThread(this, USE_HOM, N_HOM_THREADS, HOM_PERCENTAGE, mutBarrierStart, mutBarrierEnd);
+                startWorker(mutThreads[i]);
+            }
         }
         double[] profData = new double[2];
-        for (int i = 0; i < MAX_ITERATIONS; i++) {
+        for (int i = generationsRun; i < MAX_ITERATIONS; i++) {
             System.out.println("******************************** MT-v2 Iteration " + (i+1) + " ********************************");
             Long time1 = System.nanoTime();
             selectParents();
@@ -45,10 +68,16 @@ public class MultiThreadV2Engine extends EvolutionEngine {
             } catch (BrokenBarrierException | InterruptedException e) {
                 e.printStackTrace();
             }
+            for (MutationThread t : mutThreads) {
+                t.drainInto(offspring, null);
+            }
             replaceWorst();
             profData[1] += offspring.size();
             System.out.println("Parents: " + parents.size() + " Offspring: " + offspring.size());
             System.out.println("Generation best: " + pop.get(pop.size()-1).regex + " with fitness " + pop.get(pop.size()-1).fitness);
+            printSearchStats();
+            System.out.println("Single-flight: " + shared.sumThenReset() + " evaluations shared, "
+                    + sharedWaitNanos.sumThenReset() / 1e6f + " ms waited for them");
             parents.clear();
             offspring.clear();
             Long time2 = System.nanoTime();
@@ -61,36 +90,101 @@ public class MultiThreadV2Engine extends EvolutionEngine {
                 System.out.println("Fault index this generation over initial one: " + fri.numFinalFaults + " / " + fri.numInitialFaults + " --> Ratio: " + (fri.numFinalFaults / fri.numInitialFaults));
             }
             profData[0] += ((time2 - time1)/1e6f);
-            if (pop.get(pop.size()-1).fitness > 0.96) {
+            if (pop.get(pop.size()-1).fitness > 0.96 || budgetExhausted() || converged()) {
                 break;
             }
         }
-        finish = true;
-        mutBarrierStart.reset();
-        mutBarrierEnd.reset();
-        pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
-        if (SPECIALIZE) {
+        chooseFinalRegex();
+        return profData;
+    }
+
+    // Takes the result of the thread that is evaluating the regex right now, or the regex already evaluated in the
+    // run, or builds and evaluates it. Null if the budget of the run is over. The key is claimed before the cache
+    // is looked up: the thread that evaluates remembers the regex before it releases the key, so a regex is never
+    // evaluated twice. If the thread that evaluates it fails, the ones waiting for it try on their own, and a failure
+    // reaches the caller as an exception
+    public RegexCandidate evaluateOnce(RegexMutator.MutatedRegExp mutant, double parentFitness) {
+        String key = mutant.string();
+        CompletableFuture<RegexCandidate> mine = new CompletableFuture<>();
+        CompletableFuture<RegexCandidate> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            long start = System.nanoTime();
+            RegexCandidate c;
             try {
-                specializeFinalRegex();
-            } catch (Exception e) {
-                System.out.println("Error. Cannot specialize regex");
-                MainClass.finalRegex = pop.get(pop.size() - 1);
+                c = running.join();
+            } catch (CompletionException e) {
+                return evaluateMutant(mutant, parentFitness);
+            } finally {
+                sharedWaitNanos.add(System.nanoTime() - start);
             }
-        } else {
-            MainClass.finalRegex = pop.get(pop.size() - 1);
-            if (fri != null) {
-                MainClass.finalFri = fri.numFinalFaults;
+            shared.increment();
+            if (c == null) {
+                return null;
             }
+            c = c.copy();
+            c.operator = mutant.description;
+            c.parentFitness = parentFitness;
+            return c;
+        }
+        try {
+            RegexCandidate c = known(mutant, parentFitness);
+            if (c == null) {
+                c = new RegexCandidate(mutant, parentFitness);
+                if (evaluate(c)) {
+                    remember(c);
+                } else {
+                    c = null;
+                }
+            }
+            mine.complete(c);
+            return c;
+        } catch (RuntimeException | Error e) {
+            // the waiters are released before the failure goes up
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
         }
-        return profData;
+    }
+
+    void startWorker(Runnable r) {
+        Thread t = new Thread(r);
+        workers.add(t);
+        t.start();
+    }
+
+    public boolean finished() {
+        return finish;
+    }
+
+    @Override
+    public void close() {
+        // the workers are waiting in a barrier or going there: the interrupt wakes them up and they see finish
+        finish = true;
+        for (Thread t : workers) {
+            t.interrupt();
+        }
+        for (Thread t : workers) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+        workers.clear();
     }
 
     @Override
     void selectParents() {
         super.selectParents();
-        for (int i = 0; i < mutThreads.length; i++) {
-            // Giving all threads their own regex
-            mutThreads[i].regex = parents.get(i).regex;
+        for (MutationThread t : mutThreads) {
+            t.parents.clear();
+            t.rnds.clear();
+        }
+        for (int i = 0; i < parents.size(); i++) {
+            // Giving all threads their own regexes, each one with its generator
+            mutThreads[i % mutThreads.length].parents.add(parents.get(i));
+            mutThreads[i % mutThreads.length].rnds.add(parentRnds.get(i));
         }
     }
 }
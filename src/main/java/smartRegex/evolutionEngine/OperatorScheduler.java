@@ -0,0 +1,147 @@
+package smartRegex.evolutionEngine;
+
+import regex.operators.AllMutators;
+import regex.operators.RegexMutator;
+import smartRegex.MainClass;
+import smartRegex.utils.RegexCandidate;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Multi-armed bandit over the mutation operators. Each operator gets a share of the mutants drawn from every parent:
+// the share follows how often its mutants beat their parent per draw and, without -seed, per second of evaluation.
+// The statistics of the older generations fade, so the shares can follow the search
+class OperatorScheduler {
+
+    // the mutants drawn from a parent when -maxmutants is not given
+    static final int DEFAULT_BUDGET = 30;
+    // weight of the statistics of the previous generations
+    private static final double DECAY = 0.8;
+    // every operator keeps at least this share, so that it can come back
+    private static final double MIN_SHARE = 0.02;
+
+    private static class Arm {
+        double better, draws, evaluations, nanos;
+        // this generation, not decayed yet. The draws and the costs are taken and reset at once, the steady state
+        // engine closes a generation while its workers go on
+        long newBetter, newEvaluations;
+        AtomicLong newDraws = new AtomicLong(), newNanos = new AtomicLong();
+    }
+
+    private Map<String, Arm> arms = new LinkedHashMap<>();
+    // read by the mutation threads, replaced at every generation
+    private volatile Map<String, Double> shares;
+    private String report = "";
+
+    OperatorScheduler() {
+        for (RegexMutator m : AllMutators.allMutators) {
+            arms.put(m.getCode(), new Arm());
+        }
+        reset();
+    }
+
+    // back to equal shares, for a new run
+    synchronized void reset() {
+        Map<String, Double> s = new LinkedHashMap<>();
+        for (Map.Entry<String, Arm> e : arms.entrySet()) {
+            e.setValue(new Arm());
+            s.put(e.getKey(), 1.0 / arms.size());
+        }
+        shares = Collections.unmodifiableMap(s);
+    }
+
+    Map<String, Double> shares() {
+        return shares;
+    }
+
+    // the mutants of it are counted as drawn when they are read
+    Iterator<RegexMutator.MutatedRegExp> counted(Iterator<RegexMutator.MutatedRegExp> it) {
+        return new Iterator<RegexMutator.MutatedRegExp>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public RegexMutator.MutatedRegExp next() {
+                RegexMutator.MutatedRegExp m = it.next();
+                Arm a = arms.get(m.description);
+                if (a != null) {
+                    a.newDraws.incrementAndGet();
+                }
+                return m;
+            }
+        };
+    }
+
+    // the fitness time of an offspring, from the thread that evaluated it
+    void cost(RegexCandidate c, long nanos) {
+        Arm a = c.operator != null ? arms.get(c.operator) : null;
+        if (a != null) {
+            a.newNanos.addAndGet(nanos);
+        }
+    }
+
+    // an offspring of the current generation, with its fitness
+    synchronized void record(RegexCandidate c) {
+        Arm a = c.operator != null ? arms.get(c.operator) : null;
+        // the second order mutants of a regex Hyperscan has not scanned yet have no parent fitness
+        if (a == null || Double.isNaN(c.parentFitness)) {
+            return;
+        }
+        a.newEvaluations++;
+        if (c.fitness > c.parentFitness) {
+            a.newBetter++;
+        }
+    }
+
+    // closes the generation and computes the shares of the next one
+    synchronized void nextGeneration() {
+        boolean useCost = MainClass.SEED == null;
+        Map<String, Double> score = new LinkedHashMap<>();
+        double sum = 0;
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Arm> e : arms.entrySet()) {
+            Arm a = e.getValue();
+            long nanos = a.newNanos.getAndSet(0);
+            long draws = a.newDraws.getAndSet(0);
+            a.better = a.better * DECAY + a.newBetter;
+            a.draws = a.draws * DECAY + draws;
+            a.evaluations = a.evaluations * DECAY + a.newEvaluations;
+            a.nanos = a.nanos * DECAY + nanos;
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(e.getKey()).append(' ').append(String.format("%.0f", shares.get(e.getKey()) * 100)).append("% (")
+                    .append(draws).append(" drawn, ").append(a.newBetter).append('/').append(a.newEvaluations)
+                    .append(" better");
+            if (a.newEvaluations > 0) {
+                sb.append(", ").append(String.format("%.2f", nanos / 1e6 / a.newEvaluations)).append(" ms");
+            }
+            sb.append(')');
+            a.newBetter = 0;
+            a.newEvaluations = 0;
+            // an operator never tried counts as one success out of two draws
+            double s = (a.better + 1) / (a.draws + 2);
+            if (useCost && a.evaluations > 0 && a.nanos > 0) {
+                s /= a.nanos / a.evaluations;
+            }
+            score.put(e.getKey(), s);
+            sum += s;
+        }
+        report = sb.toString();
+        Map<String, Double> s = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> e : score.entrySet()) {
+            s.put(e.getKey(), MIN_SHARE + (1 - MIN_SHARE * arms.size()) * e.getValue() / sum);
+        }
+        shares = Collections.unmodifiableMap(s);
+    }
+
+    // the shares used in the generation just closed and how their offspring did
+    synchronized String report() {
+        return report;
+    }
+}
@@ -0,0 +1,205 @@
+package smartRegex.evolutionEngine;
+
+import smartRegex.MainClass;
+import smartRegex.utils.RegexCandidate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// NSGA-II on a single thread: the accuracy (the fitness without the penalty of the |) is maximized together with
+// the match cost, that is the states of the minimal DFA and, without -seed, the average time of the automaton on a
+// string. Parents are chosen by crowded tournaments and the next population is made of the best non-dominated fronts
+// of parents and offspring. The result is the first front, the regex with the best fitness of it is specialized as
+// usual
+public class ParetoEngine extends MonoThreadEngine {
+
+    // the match time changes from a run to another, with -seed only the states are used
+    private boolean useTime;
+
+    public ParetoEngine() {
+        super();
+        useTime = MainClass.SEED == null;
+    }
+
+    @Override
+    public String schedulingPolicy() {
+        return "single thread, NSGA-II on accuracy, DFA states" + (useTime ? " and match time" : "");
+    }
+
+    @Override
+    void selectParents() {
+        // binary tournaments without replacement: the lower front wins, then the larger crowding distance
+        int[] rank = new int[pop.size()];
+        double[] crowding = new double[pop.size()];
+        sort(pop, rank, crowding);
+        int n = Math.min(N_PARENTS, pop.size());
+        int[] free = new int[pop.size()];
+        for (int i = 0; i < free.length; i++) {
+            free[i] = i;
+        }
+        int size = free.length;
+        for (int i = 0; i < n; i++) {
+            int a = rnd.nextInt(size), b = rnd.nextInt(size);
+            int winner = rank[free[b]] < rank[free[a]]
+                    || (rank[free[b]] == rank[free[a]] && crowding[free[b]] > crowding[free[a]]) ? b : a;
+            parents.add(pop.get(free[winner]));
+            free[winner] = free[--size];
+        }
+        setMates(parents);
+        parentRnds.clear();
+        for (int i = 0; i < parents.size(); i++) {
+            parentRnds.add(rnd.split());
+        }
+    }
+
+    @Override
+    void replaceWorst() {
+        closeOffspring();
+        if (offspring.isEmpty()) {
+            return;
+        }
+        int n = pop.size();
+        List<RegexCandidate> all = new ArrayList<>(pop);
+        all.addAll(offspring);
+        int[] rank = new int[all.size()];
+        double[] crowding = new double[all.size()];
+        sort(all, rank, crowding);
+        // whole fronts while they fit, the last one is cut by crowding distance. The copies of a regex already
+        // taken come after all the others
+        boolean[] copy = new boolean[all.size()];
+        Set<String> regexes = new HashSet<>();
+        Integer[] order = new Integer[all.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            copy[i] = !regexes.add(all.get(i).string());
+        }
+        Arrays.sort(order, (i, j) -> copy[i] != copy[j] ? Boolean.compare(copy[i], copy[j])
+                : rank[i] != rank[j] ? Integer.compare(rank[i], rank[j]) : Double.compare(crowding[j], crowding[i]));
+        List<RegexCandidate> next = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            next.add(all.get(order[i]));
+        }
+        // the survivors are copies, an offspring can be bounded without changing the candidate the scheduler saw
+        pop.clear();
+        for (RegexCandidate r : next) {
+            RegexCandidate c = r.copy();
+            boundRepeats(c, rnd);
+            pop.add(c);
+        }
+        pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
+        List<RegexCandidate> front = front(pop);
+        System.out.println("Pareto front: " + front.size() + " regexes, accuracy " + front.get(front.size() - 1).accuracy
+                + "-" + front.get(0).accuracy + ", DFA states " + front.get(front.size() - 1).states() + "-" + front.get(0).states());
+    }
+
+    @Override
+    void chooseFinalRegex() {
+        // copies, the final choice can replace an individual of the population
+        MainClass.paretoFront = new ArrayList<>();
+        for (RegexCandidate r : front(pop)) {
+            MainClass.paretoFront.add(r.copy());
+        }
+        super.chooseFinalRegex();
+    }
+
+    // The first front of the population, from the most accurate to the cheapest. Of the regexes with the same
+    // objectives only the shortest one is kept
+    private List<RegexCandidate> front(List<RegexCandidate> population) {
+        int[] rank = new int[population.size()];
+        sort(population, rank, new double[population.size()]);
+        Map<String, RegexCandidate> points = new LinkedHashMap<>();
+        for (int i = 0; i < rank.length; i++) {
+            RegexCandidate r = population.get(i);
+            if (rank[i] == 0) {
+                points.merge(r.accuracy + " " + r.states() + (useTime ? " " + r.matchNanos : ""), r,
+                        (r1, r2) -> r2.string().length() < r1.string().length() ? r2 : r1);
+            }
+        }
+        List<RegexCandidate> front = new ArrayList<>(points.values());
+        front.sort((r1, r2) -> r1.accuracy != r2.accuracy ? Double.compare(r2.accuracy, r1.accuracy)
+                : Integer.compare(r1.states(), r2.states()));
+        return front;
+    }
+
+    private boolean dominates(RegexCandidate a, RegexCandidate b) {
+        boolean noWorse = a.accuracy >= b.accuracy && a.states() <= b.states() && (!useTime || a.matchNanos <= b.matchNanos);
+        boolean better = a.accuracy > b.accuracy || a.states() < b.states() || (useTime && a.matchNanos < b.matchNanos);
+        return noWorse && better;
+    }
+
+    // Fast non-dominated sort: rank[i] is the front of candidates.get(i), 0 the first one. crowding[i] is the
+    // crowding distance of it within its front
+    private void sort(List<RegexCandidate> candidates, int[] rank, double[] crowding) {
+        int size = candidates.size();
+        List<List<Integer>> dominated = new ArrayList<>();
+        int[] dominators = new int[size];
+        List<Integer> current = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            dominated.add(new ArrayList<>());
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                if (dominates(candidates.get(i), candidates.get(j))) {
+                    dominated.get(i).add(j);
+                    dominators[j]++;
+                } else if (dominates(candidates.get(j), candidates.get(i))) {
+                    dominated.get(j).add(i);
+                    dominators[i]++;
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (dominators[i] == 0) {
+                current.add(i);
+            }
+        }
+        for (int f = 0; !current.isEmpty(); f++) {
+            crowding(candidates, current, crowding);
+            List<Integer> next = new ArrayList<>();
+            for (int i : current) {
+                rank[i] = f;
+                for (int j : dominated.get(i)) {
+                    if (--dominators[j] == 0) {
+                        next.add(j);
+                    }
+                }
+            }
+            current = next;
+        }
+    }
+
+    private void crowding(List<RegexCandidate> candidates, List<Integer> front, double[] crowding) {
+        for (int i : front) {
+            crowding[i] = 0;
+        }
+        List<Comparator<Integer>> objectives = new ArrayList<>();
+        objectives.add(Comparator.comparingDouble(i -> candidates.get(i).accuracy));
+        objectives.add(Comparator.comparingInt(i -> candidates.get(i).states()));
+        if (useTime) {
+            objectives.add(Comparator.comparingDouble(i -> candidates.get(i).matchNanos));
+        }
+        List<Integer> sorted = new ArrayList<>(front);
+        for (int o = 0; o < objectives.size(); o++) {
+            sorted.sort(objectives.get(o).thenComparingInt(i -> i));
+            double min = value(candidates.get(sorted.get(0)), o), max = value(candidates.get(sorted.get(sorted.size() - 1)), o);
+            crowding[sorted.get(0)] = Double.POSITIVE_INFINITY;
+            crowding[sorted.get(sorted.size() - 1)] = Double.POSITIVE_INFINITY;
+            if (max == min) {
+                continue;
+            }
+            for (int k = 1; k < sorted.size() - 1; k++) {
+                crowding[sorted.get(k)] += (value(candidates.get(sorted.get(k + 1)), o) - value(candidates.get(sorted.get(k - 1)), o)) / (max - min);
+            }
+        }
+    }
+
+    private static double value(RegexCandidate c, int objective) {
+        return objective == 0 ? c.accuracy : objective == 1 ? c.states() : c.matchNanos;
+    }
+}
@@ -0,0 +1,292 @@
+package smartRegex.evolutionEngine;
+
+import dk.brics.automaton.RegExp;
+import regex.operators.RegexMutator;
+import regex.utils.RegexFlags;
+import smartRegex.MainClass;
+import smartRegex.utils.RegexCandidate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PipelineEngine extends EvolutionEngine {
+
+    private int N_MUTATORS, N_COMPILERS, N_EVALUATORS, QUEUE_SIZE;
+    // parents and HOM re-entries are never blocked, otherwise the evaluators could wait on the mutators
+    // that wait on them. The queues between the stages are bounded and give the backpressure
+    private BlockingQueue<Work> parentQueue = new LinkedBlockingQueue<>();
+    private BlockingQueue<Work> compileQueue, evalQueue;
+    private QueueStats compileStats = new QueueStats(), evalStats = new QueueStats();
+    // units of work not yet completed in this generation, when it goes to 0 the generation is over
+    private AtomicInteger pending = new AtomicInteger();
+    private Semaphore generationDone = new Semaphore(0);
+    private List<Thread> workers = new ArrayList<>();
+    private List<List<RegexCandidate>> buffers = new ArrayList<>();
+
+    private static class Work {
+        RegExp regex;
+        RegexCandidate candidate;
+        // in the parent queue: the regex is a mutant that receives HOM, in the other queues: the mutant
+        // has been chosen to receive HOM after it has been evaluated
+        boolean hom;
+        // the generator of the mutation of the regex, null if it is not going to be mutated
+        SplittableRandom rnd;
+        // in the parent queue: the fitness of the regex, in the other queues: the operator that produced the
+        // mutant and the fitness of its parent. NaN if it is not known
+        double fitness = Double.NaN;
+        String operator;
+        // in the compile queue: the mutant the regex comes from, its automaton is compiled from it
+        RegexMutator.MutatedRegExp mutant;
+        // in the evaluation queue: the candidate is a regex already evaluated in the run, it skips the stages
+        boolean known;
+
+        Work(RegExp regex, boolean hom, SplittableRandom rnd) {
+            this.regex = regex;
+            this.hom = hom;
+            this.rnd = rnd;
+        }
+    }
+
+    private static class QueueStats {
+        LongAdder samples = new LongAdder(), depthSum = new LongAdder(), blockedNanos = new LongAdder();
+        AtomicInteger maxDepth = new AtomicInteger();
+
+        void sample(int depth) {
+            samples.increment();
+            depthSum.add(depth);
+            maxDepth.accumulateAndGet(depth, Math::max);
+        }
+
+        String report(int capacity) {
+            long n = samples.sum();
+            String s = String.format("avg %.1f, max %d/%d, blocked %.3f sec", n == 0 ? 0 : depthSum.sum() / (double) n,
+                    maxDepth.get(), capacity, blockedNanos.sum() / 1e9);
+            samples.reset();
+            depthSum.reset();
+            blockedNanos.reset();
+            maxDepth.set(0);
+            return s;
+        }
+    }
+
+    public PipelineEngine() {
+        super();
+        N_MUTATORS = MainClass.PIPE_MUTATORS;
+        N_COMPILERS = MainClass.PIPE_COMPILERS;
+        N_EVALUATORS = MainClass.PIPE_EVALUATORS;
+        QUEUE_SIZE = MainClass.PIPE_QUEUE;
+        compileQueue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        evalQueue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    }
+
+    @Override
+    public String schedulingPolicy() {
+        return N_MUTATORS + " mutation, " + N_COMPILERS + " compilation and " + N_EVALUATORS + " evaluation workers";
+    }
+
+    @Override
+    public void close() {
+        for (Thread t : workers) {
+            t.interrupt();
+        }
+        for (Thread t : workers) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+        workers.clear();
+    }
+
+    @Override
+    public double[] run() {
+        startRun();
+        // the stages are started by the first run and wait on their queues between the runs
+        if (workers.isEmpty()) {
+            for (int i = 0; i < N_MUTATORS; i++) {
+                workers.add(new Thread(this::mutationStage));
+            }
+            for (int i = 0; i < N_COMPILERS; i++) {
+                workers.add(new Thread(this::compileStage));
+            }
+            for (int i = 0; i < N_EVALUATORS; i++) {
+                List<RegexCandidate> buffer = new ArrayList<>();
+                buffers.add(buffer);
+                workers.add(new Thread(() -> evaluationStage(buffer)));
+            }
+            for (Thread t : workers) {
+                t.start();
+            }
+        }
+        double[] profData = new double[2];
+        for (int i = generationsRun; i < MAX_ITERATIONS; i++) {
+            System.out.println("******************************** PL Iteration " + (i+1) + " ********************************");
+            Long time1 = System.nanoTime();
+            selectParents();
+            pending.set(parents.size());
+            for (int j = 0; j < parents.size(); j++) {
+                Work w = new Work(parents.get(j).regex, false, parentRnds.get(j));
+                w.fitness = parents.get(j).fitness;
+                parentQueue.add(w);
+            }
+            generationDone.acquireUninterruptibly();
+            // all the stages are idle now, the buffers can be read without synchronization
+            for (List<RegexCandidate> buffer : buffers) {
+                offspring.addAll(buffer);
+                buffer.clear();
+            }
+            replaceWorst();
+            profData[1] += offspring.size();
+            System.out.println("Parents: " + parents.size() + " Offspring: " + offspring.size());
+            System.out.println("Generation best: " + pop.get(pop.size()-1).regex + " with fitness " + pop.get(pop.size()-1).fitness);
+            printSearchStats();
+            System.out.println("Compile queue: " + compileStats.report(QUEUE_SIZE));
+            System.out.println("Evaluation queue: " + evalStats.report(QUEUE_SIZE));
+            parents.clear();
+            offspring.clear();
+            Long time2 = System.nanoTime();
+            System.out.println("Time this generation: " + (time2 - time1)/1e9f + " sec\n");
+
+            if (fri != null) {
+                double lastnum = fri.numFinalFaults;
+                fri.computeRatio(pop.get(pop.size() - 1).regex);
+                System.out.println("Fault index this generation over last one: " + fri.numFinalFaults + " / " + lastnum + " --> Ratio: " + (fri.numFinalFaults / lastnum));
+                System.out.println("Fault index this generation over initial one: " + fri.numFinalFaults + " / " + fri.numInitialFaults + " --> Ratio: " + (fri.numFinalFaults / fri.numInitialFaults));
+            }
+            profData[0] += ((time2 - time1)/1e6f);
+            if (pop.get(pop.size()-1).fitness > 0.96 || budgetExhausted() || converged()) {
+                break;
+            }
+        }
+        chooseFinalRegex();
+        return profData;
+    }
+
+    private void mutationStage() {
+        try {
+            while (true) {
+                Work w = parentQueue.take();
+                if (budgetExhausted()) {
+                    done();
+                    continue;
+                }
+                try {
+                    RegexMutator.MutatedRegExp m;
+                    List<RegexMutator.MutatedRegExp> mutants = new ArrayList<>();
+                    Iterator<RegexMutator.MutatedRegExp> it = mutate(w.regex, w.rnd);
+                    while (it.hasNext()) {
+                        //if it contains '~' I do not want it because it breaks the evolution by taking a high score only by having a correct side
+                        if (!(m = it.next()).has(RegexFlags.COMPLEMENT)) {
+                            mutants.add(m);
+                        }
+                    }
+                    // only first order mutants can be chosen for HOM. As in the other engines, size * homperc of the
+                    // mutants of each parent are chosen
+                    int size = mutants.size();
+                    boolean[] chosen = new boolean[size];
+                    if (USE_HOM && !w.hom) {
+                        int n = (int) (size * HOM_PERCENTAGE);
+                        for (int nRegexAssigned = 0; nRegexAssigned < n; nRegexAssigned++) {
+                            int index;
+                            do {
+                                index = w.rnd.nextInt(size);
+                            } while (chosen[index]);
+                            chosen[index] = true;
+                        }
+                    }
+                    for (int i = 0; i < size; i++) {
+                        m = mutants.get(i);
+                        SplittableRandom homRnd = chosen[i] ? w.rnd.split() : null;
+                        RegexCandidate c = known(m, w.fitness);
+                        Work mutant = new Work(c != null ? c.regex : m.regExp(), chosen[i], homRnd);
+                        mutant.operator = m.description;
+                        mutant.fitness = w.fitness;
+                        pending.incrementAndGet();
+                        if (c != null) {
+                            // it goes straight to an evaluator, that takes it as it is
+                            mutant.candidate = c;
+                            mutant.known = true;
+                            put(evalQueue, mutant, evalStats);
+                        } else {
+                            mutant.mutant = m;
+                            put(compileQueue, mutant, compileStats);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                done();
+            }
+        } catch (InterruptedException ignored) {}
+    }
+
+    private void compileStage() {
+        try {
+            while (true) {
+                Work w = compileQueue.take();
+                if (budgetExhausted()) {
+                    // the rest of the generation is drained without doing anything
+                    done();
+                    continue;
+                }
+                try {
+                    w.candidate = new RegexCandidate(w.mutant, w.fitness);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    done();
+                    continue;
+                }
+                put(evalQueue, w, evalStats);
+            }
+        } catch (InterruptedException ignored) {}
+    }
+
+    private void evaluationStage(List<RegexCandidate> buffer) {
+        try {
+            while (true) {
+                Work w = evalQueue.take();
+                try {
+                    if (w.known || evaluate(w.candidate)) {
+                        if (!w.known) {
+                            remember(w.candidate);
+                        }
+                        buffer.add(w.candidate);
+                        if (w.hom) {
+                            pending.incrementAndGet();
+                            Work homParent = new Work(w.regex, true, w.rnd);
+                            homParent.fitness = w.candidate.fitness;
+                            parentQueue.add(homParent);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                done();
+            }
+        } catch (InterruptedException ignored) {}
+    }
+
+    private void put(BlockingQueue<Work> queue, Work w, QueueStats stats) throws InterruptedException {
+        stats.sample(queue.size());
+        if (!queue.offer(w)) {
+            long start = System.nanoTime();
+            queue.put(w);
+            stats.blockedNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private void done() {
+        if (pending.decrementAndGet() == 0) {
+            generationDone.release();
+        }
+    }
+}
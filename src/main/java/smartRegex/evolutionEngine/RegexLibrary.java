@@ -0,0 +1,185 @@
+package smartRegex.evolutionEngine;
+
+import smartRegex.utils.LabeledString;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// The final regexes of past runs, each one with the fingerprint of the strings it was evolved on. A new run starts
+// part of its population from the regexes of the nearest fingerprints. Of the runs on the same strings only the best
+// regex is kept. The whole file is read when a run starts and written again when a run stores its result
+class RegexLibrary {
+
+    private static final int MAGIC = 0x53524c42, VERSION = 1;
+
+    // What the accepted strings look like: the fraction of their characters in each class (upper case, lower case,
+    // digit, space, other) and the fraction of them of each length, the last bin counts the longer ones too
+    static class Fingerprint {
+
+        static final int CLASSES = 5, MAX_LENGTH = 64;
+
+        double[] classes = new double[CLASSES];
+        double[] lengths = new double[MAX_LENGTH + 1];
+
+        static Fingerprint of(List<LabeledString> strings) {
+            Fingerprint f = new Fingerprint();
+            int n = 0, chars = 0;
+            for (LabeledString l : strings) {
+                if (!l.accepted) {
+                    continue;
+                }
+                n++;
+                f.lengths[Math.min(l.string.length(), MAX_LENGTH)]++;
+                for (char ch : l.string.toCharArray()) {
+                    f.classes[Character.isUpperCase(ch) ? 0 : Character.isLowerCase(ch) ? 1 : Character.isDigit(ch) ? 2
+                            : Character.isWhitespace(ch) ? 3 : 4]++;
+                    chars++;
+                }
+            }
+            for (int i = 0; i < f.classes.length; i++) {
+                f.classes[i] /= Math.max(chars, 1);
+            }
+            for (int i = 0; i < f.lengths.length; i++) {
+                f.lengths[i] /= Math.max(n, 1);
+            }
+            return f;
+        }
+
+        // L1 distance of the classes, in [0, 2], plus the distance of the lengths (how many characters the lengths
+        // have to move, over the mean length of this fingerprint)
+        double distance(Fingerprint other) {
+            double d = 0;
+            for (int i = 0; i < CLASSES; i++) {
+                d += Math.abs(classes[i] - other.classes[i]);
+            }
+            double cdf = 0, moved = 0, mean = 0;
+            for (int i = 0; i <= MAX_LENGTH; i++) {
+                cdf += lengths[i] - other.lengths[i];
+                moved += Math.abs(cdf);
+                mean += i * lengths[i];
+            }
+            return d + moved / Math.max(mean, 1);
+        }
+    }
+
+    static class Entry {
+        String regex;
+        double fitness;
+        String dataset;
+        Fingerprint fingerprint;
+        double distance;
+    }
+
+    private Path file;
+    private List<Entry> entries = new ArrayList<>();
+
+    RegexLibrary(String file) {
+        this.file = Paths.get(file);
+    }
+
+    // reads the file again, an entry stored by another run is seen by the next one
+    void load() {
+        entries.clear();
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a regex library of this version");
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                Entry e = new Entry();
+                e.regex = in.readUTF();
+                e.fitness = in.readDouble();
+                e.dataset = in.readUTF();
+                e.fingerprint = new Fingerprint();
+                for (int i = 0; i < e.fingerprint.classes.length; i++) {
+                    e.fingerprint.classes[i] = in.readDouble();
+                }
+                for (int i = 0; i < e.fingerprint.lengths.length; i++) {
+                    e.fingerprint.lengths[i] = in.readDouble();
+                }
+                entries.add(e);
+            }
+        } catch (IOException e) {
+            System.out.println("Cannot read regex library " + file + ": " + e.getMessage());
+            entries.clear();
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    // up to n distinct regexes, from the nearest fingerprint
+    List<Entry> nearest(Fingerprint fingerprint, int n) {
+        for (Entry e : entries) {
+            e.distance = fingerprint.distance(e.fingerprint);
+        }
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingDouble(e -> e.distance));
+        List<Entry> nearest = new ArrayList<>();
+        Set<String> regexes = new HashSet<>();
+        for (Entry e : sorted) {
+            if (nearest.size() < n && regexes.add(e.regex)) {
+                nearest.add(e);
+            }
+        }
+        return nearest;
+    }
+
+    // adds the result of a run, unless a better one for the same strings is already there
+    void store(String regex, double fitness, String dataset, Fingerprint fingerprint) {
+        load();
+        for (Entry e : entries) {
+            if (e.dataset.equals(dataset)) {
+                if (e.fitness >= fitness) {
+                    return;
+                }
+                entries.remove(e);
+                break;
+            }
+        }
+        Entry entry = new Entry();
+        entry.regex = regex;
+        entry.fitness = fitness;
+        entry.dataset = dataset;
+        entry.fingerprint = fingerprint;
+        entries.add(entry);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+                for (Entry e : entries) {
+                    out.writeUTF(e.regex);
+                    out.writeDouble(e.fitness);
+                    out.writeUTF(e.dataset);
+                    for (double c : e.fingerprint.classes) {
+                        out.writeDouble(c);
+                    }
+                    for (double l : e.fingerprint.lengths) {
+                        out.writeDouble(l);
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Stored in the regex library " + file + " (" + entries.size() + " regexes)");
+        } catch (IOException e) {
+            System.out.println("Cannot write regex library " + file + ": " + e);
+        }
+    }
+}
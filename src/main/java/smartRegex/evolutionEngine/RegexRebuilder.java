@@ -0,0 +1,91 @@
+package smartRegex.evolutionEngine;
+
+import dk.brics.automaton.oo.REGEXP_AUTOMATON;
+import dk.brics.automaton.oo.REGEXP_CHAR;
+import dk.brics.automaton.oo.REGEXP_CHAR_RANGE;
+import dk.brics.automaton.oo.REGEXP_COMPLEMENT;
+import dk.brics.automaton.oo.REGEXP_CONCATENATION;
+import dk.brics.automaton.oo.REGEXP_INTERSECTION;
+import dk.brics.automaton.oo.REGEXP_INTERVAL;
+import dk.brics.automaton.oo.REGEXP_REPEAT;
+import dk.brics.automaton.oo.REGEXP_SPECIALCHAR;
+import dk.brics.automaton.oo.REGEXP_UNION;
+import dk.brics.automaton.oo.RegexVisitor;
+import dk.brics.automaton.oo.oobinregex;
+import dk.brics.automaton.oo.ooregex;
+import dk.brics.automaton.oo.oosimpleexp;
+
+// Copies a regex tree changing its repeats with repeat(). The nodes that have nothing changed below them are not
+// rebuilt, so a tree without changes is returned as it is
+abstract class RegexRebuilder implements RegexVisitor<ooregex> {
+
+    // the repeat r, whose content has already been rebuilt
+    abstract ooregex repeat(REGEXP_REPEAT r, ooregex content);
+
+    // r with the new content
+    static ooregex same(REGEXP_REPEAT r, ooregex content) {
+        return content == r.getContentExpr() ? r : REGEXP_REPEAT.sameREPEAT_Type(r, content);
+    }
+
+    @Override
+    public ooregex visit(REGEXP_REPEAT r) {
+        return repeat(r, r.getContentExpr().accept(this));
+    }
+
+    @Override
+    public ooregex visit(REGEXP_UNION r) {
+        return visitBinary(r);
+    }
+
+    @Override
+    public ooregex visit(REGEXP_CONCATENATION r) {
+        return visitBinary(r);
+    }
+
+    @Override
+    public ooregex visit(REGEXP_INTERSECTION r) {
+        return visitBinary(r);
+    }
+
+    private ooregex visitBinary(oobinregex r) {
+        ooregex e1 = r.exp1.accept(this);
+        ooregex e2 = r.exp2.accept(this);
+        return e1 == r.exp1 && e2 == r.exp2 ? r : oobinregex.makeBinExpression(r.getClass(), e1, e2);
+    }
+
+    @Override
+    public ooregex visit(REGEXP_COMPLEMENT r) {
+        ooregex content = r.getContentExpr().accept(this);
+        return content == r.getContentExpr() ? r : new REGEXP_COMPLEMENT(content);
+    }
+
+    @Override
+    public ooregex visit(REGEXP_CHAR r) {
+        return r;
+    }
+
+    @Override
+    public ooregex visit(REGEXP_CHAR_RANGE r) {
+        return r;
+    }
+
+    @Override
+    public ooregex visit(oosimpleexp r) {
+        return r;
+    }
+
+    @Override
+    public ooregex visit(REGEXP_SPECIALCHAR r) {
+        return r;
+    }
+
+    @Override
+    public ooregex visit(REGEXP_AUTOMATON r) {
+        return r;
+    }
+
+    @Override
+    public ooregex visit(REGEXP_INTERVAL r) {
+        return r;
+    }
+}
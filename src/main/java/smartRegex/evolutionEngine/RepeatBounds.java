@@ -0,0 +1,47 @@
+package smartRegex.evolutionEngine;
+
+import dk.brics.automaton.OORegexConverter;
+import dk.brics.automaton.RegExp;
+import dk.brics.automaton.oo.REGEXP_REPEAT;
+import dk.brics.automaton.oo.ooregex;
+
+import java.util.SplittableRandom;
+
+// Replaces the repeats without an upper bound (*, +, {n,}) and the optional ones (?) of a regex with {m,k}: m is at
+// least 1 and k is drawn in (m, m + maxInfinite - 1]. The nodes without such repeats are not rebuilt, so a regex that
+// has none is returned as it is
+class RepeatBounds extends RegexRebuilder {
+
+    private int maxInfinite;
+    private SplittableRandom rnd;
+
+    private RepeatBounds(int maxInfinite, SplittableRandom rnd) {
+        this.maxInfinite = maxInfinite;
+        this.rnd = rnd;
+    }
+
+    static RegExp bound(RegExp regex, int maxInfinite, SplittableRandom rnd) {
+        // a regex without these characters cannot have such repeats, its tree is not built at all
+        String s = regex.toString();
+        if (s.indexOf('*') < 0 && s.indexOf('?') < 0 && !s.contains(",}")) {
+            return regex;
+        }
+        ooregex tree = OORegexConverter.getOORegex(regex);
+        ooregex bounded = tree.accept(new RepeatBounds(maxInfinite, rnd));
+        return bounded == tree ? regex : OORegexConverter.convertBackToRegex(bounded);
+    }
+
+    @Override
+    ooregex repeat(REGEXP_REPEAT r, ooregex content) {
+        if (r.max == REGEXP_REPEAT.infinite || (r.min == 0 && r.max == 1)) {
+            int min = Math.max(r.min, 1);
+            return REGEXP_REPEAT.REGEXP_REPEAT_MINMAX_N(content, min, min + 1 + rnd.nextInt(maxInfinite - 1));
+        }
+        return same(r, content);
+    }
+
+    @Override
+    public String getCode() {
+        return "BR";
+    }
+}
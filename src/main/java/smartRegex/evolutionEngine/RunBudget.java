@@ -0,0 +1,139 @@
+package smartRegex.evolutionEngine;
+
+import smartRegex.MainClass;
+import smartRegex.utils.RegexCandidate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class RunBudget {
+
+    // the fitness that ends a run
+    static final double TARGET = 0.96;
+
+    // 0 means no limit
+    private long deadline, maxEvaluations;
+    private long start;
+    private AtomicLong evaluations = new AtomicLong();
+    private volatile String stopReason;
+    // the best regex evaluated so far, also if it never entered the population
+    private RegexCandidate incumbent;
+    private IncumbentListener listener;
+    // the generations done so far, kept up to date by the engine. The workers of the steady state engine update it
+    // together, so it only moves forward
+    private AtomicInteger generation = new AtomicInteger();
+    // when a regex over the target fitness was first evaluated, -1 if none was
+    private long targetNanos = -1, targetEvaluations;
+    private int targetGeneration;
+
+    RunBudget() {
+        this(MainClass.TIME_BUDGET, MainClass.EVAL_BUDGET);
+    }
+
+    // a budget of timeBudget milliseconds and evalBudget evaluations from now, 0 means no limit
+    RunBudget(long timeBudget, long evalBudget) {
+        start = System.nanoTime();
+        deadline = timeBudget > 0 ? start + timeBudget * 1000000L : 0;
+        maxEvaluations = evalBudget;
+    }
+
+    boolean exhausted() {
+        if (stopReason != null) {
+            return true;
+        }
+        if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+            stopReason = "time budget";
+        } else if (maxEvaluations != 0 && evaluations.get() >= maxEvaluations) {
+            stopReason = "evaluation budget";
+        }
+        return stopReason != null;
+    }
+
+    boolean timeExhausted() {
+        return "time budget".equals(stopReason);
+    }
+
+    // takes one evaluation from the budget, false if there is none left
+    boolean take() {
+        if (exhausted()) {
+            return false;
+        }
+        if (maxEvaluations != 0 && evaluations.incrementAndGet() > maxEvaluations) {
+            evaluations.decrementAndGet();
+            stopReason = "evaluation budget";
+            return false;
+        }
+        if (maxEvaluations == 0) {
+            evaluations.incrementAndGet();
+        }
+        return true;
+    }
+
+    // What is left of the budget, 0 if there is no limit. At least 1 for a limit, so that it is not taken for none
+    long remainingMillis() {
+        return deadline == 0 ? 0 : Math.max(1, (deadline - System.nanoTime()) / 1000000L);
+    }
+
+    long remainingEvaluations() {
+        return maxEvaluations == 0 ? 0 : Math.max(1, maxEvaluations - evaluations.get());
+    }
+
+    // for the engines that evaluate outside of the budget (Hyperscan, remote islands)
+    void add(long n) {
+        evaluations.addAndGet(n);
+    }
+
+    void generation(int generation) {
+        this.generation.accumulateAndGet(generation, Math::max);
+    }
+
+    long evaluations() {
+        return evaluations.get();
+    }
+
+    String stopReason() {
+        return stopReason;
+    }
+
+    synchronized void offer(RegexCandidate c) {
+        if (targetNanos < 0 && c.fitness > TARGET) {
+            targetNanos = System.nanoTime() - start;
+            targetEvaluations = evaluations.get();
+            targetGeneration = generation.get() + 1;
+        }
+        if (incumbent == null || c.fitness > incumbent.fitness) {
+            incumbent = c.copy();
+            if (listener != null) {
+                listener.improved(incumbent.copy(), evaluations.get(), System.nanoTime() - start);
+            }
+        }
+    }
+
+    synchronized long targetNanos() {
+        return targetNanos;
+    }
+
+    synchronized long targetEvaluations() {
+        return targetEvaluations;
+    }
+
+    // the generation in which the target was reached
+    synchronized int targetGeneration() {
+        return targetGeneration;
+    }
+
+    synchronized RegexCandidate incumbent() {
+        return incumbent;
+    }
+
+    synchronized void setListener(IncumbentListener listener) {
+        this.listener = listener;
+    }
+
+    // a new budget for another run, with the same listener
+    synchronized RunBudget restart() {
+        RunBudget b = new RunBudget();
+        b.listener = listener;
+        return b;
+    }
+}
@@ -0,0 +1,281 @@
+package smartRegex.evolutionEngine;
+
+import smartRegex.MainClass;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// How the parents of a generation are chosen. Every strategy returns distinct individuals and always terminates:
+// when fewer individuals than the parents wanted have a weight > 0, the missing ones are chosen uniformly among
+// the others. A fitness < 0 (the penalty of the |) counts as 0
+public enum Selection {
+
+    // probability proportional to the fitness, binary search over the cumulative fitness: O(log n) per draw
+    ROULETTE,
+    // the same probabilities of the roulette from Walker's alias table: O(1) per draw
+    ALIAS {
+        @Override
+        Sampler sampler(double[] weights) {
+            return new AliasTable(weights);
+        }
+    },
+    // the best of MainClass.TOURNAMENT_SIZE individuals drawn uniformly, it needs no table
+    TOURNAMENT {
+        @Override
+        int[] select(double[] fitness, int n, SplittableRandom rnd) {
+            n = Math.min(n, fitness.length);
+            // the individuals not chosen yet are free[0..size), a winner is swapped out of the range
+            int[] free = new int[fitness.length];
+            for (int i = 0; i < free.length; i++) {
+                free[i] = i;
+            }
+            int size = free.length;
+            int[] parents = new int[n];
+            for (int i = 0; i < n; i++) {
+                int best = rnd.nextInt(size);
+                for (int k = 1; k < MainClass.TOURNAMENT_SIZE; k++) {
+                    int c = rnd.nextInt(size);
+                    if (fitness[free[c]] > fitness[free[best]]) {
+                        best = c;
+                    }
+                }
+                parents[i] = free[best];
+                free[best] = free[--size];
+            }
+            return parents;
+        }
+    },
+    // probability proportional to the position in the fitness order, so that a few regexes much better than the
+    // others do not take all the draws. Individuals with the same fitness have the same position
+    RANK {
+        @Override
+        double[] weights(double[] fitness) {
+            double[] sorted = fitness.clone();
+            Arrays.sort(sorted);
+            double[] weights = new double[fitness.length];
+            for (int i = 0; i < fitness.length; i++) {
+                int low = 0, high = sorted.length;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (sorted[mid] < fitness[i]) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                weights[i] = low + 1;
+            }
+            return weights;
+        }
+
+        @Override
+        Sampler sampler(double[] weights) {
+            return new AliasTable(weights);
+        }
+    },
+    // stochastic universal sampling: a single draw places equally spaced pointers on the roulette
+    SUS {
+        @Override
+        int[] select(double[] fitness, int n, SplittableRandom rnd) {
+            n = Math.min(n, fitness.length);
+            double[] weights = weights(fitness);
+            boolean[] chosen = new boolean[weights.length];
+            int[] parents = new int[n];
+            int count = 0;
+            // an individual wider than the distance between two pointers is hit more than once: the missing
+            // parents are taken with another round on the individuals not chosen yet
+            while (count < n) {
+                double sum = 0;
+                for (double w : weights) {
+                    sum += w;
+                }
+                if (sum <= 0) {
+                    break;
+                }
+                double step = sum / (n - count);
+                double pointer = rnd.nextDouble() * step;
+                double cumulative = 0;
+                for (int i = 0; i < weights.length && count < n; i++) {
+                    cumulative += weights[i];
+                    if (weights[i] > 0 && pointer < cumulative) {
+                        chosen[i] = true;
+                        parents[count++] = i;
+                        while (pointer < cumulative) {
+                            pointer += step;
+                        }
+                        weights[i] = 0;
+                    }
+                }
+            }
+            return fill(parents, count, chosen, rnd);
+        }
+    };
+
+    // consecutive draws of an individual already chosen after which the sampler is built again without them
+    private static final int MAX_REJECTIONS = 16;
+
+    interface Sampler {
+        // an index with probability proportional to its weight
+        int next(SplittableRandom rnd);
+    }
+
+    // the indexes of n distinct individuals of the population with the given fitness
+    int[] select(double[] fitness, int n, SplittableRandom rnd) {
+        n = Math.min(n, fitness.length);
+        double[] weights = weights(fitness);
+        boolean[] chosen = new boolean[weights.length];
+        int[] parents = new int[n];
+        int positive = 0;
+        for (double w : weights) {
+            if (w > 0) {
+                positive++;
+            }
+        }
+        int count = 0;
+        int rejections = 0;
+        Sampler sampler = positive > 0 ? sampler(weights) : null;
+        while (count < n && count < positive) {
+            int index = sampler.next(rnd);
+            // the weight of a chosen individual is set to 0, the sampler still has the old one
+            if (weights[index] <= 0) {
+                if (++rejections == MAX_REJECTIONS) {
+                    sampler = sampler(weights);
+                    rejections = 0;
+                }
+                continue;
+            }
+            rejections = 0;
+            chosen[index] = true;
+            weights[index] = 0;
+            parents[count++] = index;
+        }
+        return fill(parents, count, chosen, rnd);
+    }
+
+    double[] weights(double[] fitness) {
+        double[] weights = new double[fitness.length];
+        for (int i = 0; i < fitness.length; i++) {
+            weights[i] = Math.max(fitness[i], 0);
+        }
+        return weights;
+    }
+
+    Sampler sampler(double[] weights) {
+        return new Roulette(weights);
+    }
+
+    // the parents after the first count are chosen uniformly among the individuals not chosen yet
+    private static int[] fill(int[] parents, int count, boolean[] chosen, SplittableRandom rnd) {
+        if (count == parents.length) {
+            return parents;
+        }
+        int[] free = new int[chosen.length - count];
+        int size = 0;
+        for (int i = 0; i < chosen.length; i++) {
+            if (!chosen[i]) {
+                free[size++] = i;
+            }
+        }
+        for (int i = 0; count < parents.length; i++) {
+            int j = i + rnd.nextInt(size - i);
+            int t = free[j];
+            free[j] = free[i];
+            free[i] = t;
+            parents[count++] = t;
+        }
+        return parents;
+    }
+
+    private static class Roulette implements Sampler {
+
+        // ranges[i] is the end of the range of i in [0, 1)
+        private double[] ranges;
+        private int last;
+
+        Roulette(double[] weights) {
+            double sum = 0;
+            for (double w : weights) {
+                sum += w;
+            }
+            ranges = new double[weights.length];
+            double lastFit = 0;
+            for (int i = 0; i < weights.length; i++) {
+                ranges[i] = lastFit + weights[i] / sum;
+                lastFit = ranges[i];
+                if (weights[i] > 0) {
+                    last = i;
+                }
+            }
+        }
+
+        @Override
+        public int next(SplittableRandom rnd) {
+            double t = rnd.nextDouble();
+            // the first range that ends after t
+            int low = 0, high = ranges.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (t < ranges[mid]) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            // t can be after the last range because of the rounding
+            return low < ranges.length ? low : last;
+        }
+    }
+
+    private static class AliasTable implements Sampler {
+
+        // column i gives i with probability prob[i], alias[i] otherwise
+        private double[] prob;
+        private int[] alias;
+
+        AliasTable(double[] weights) {
+            int n = weights.length;
+            prob = new double[n];
+            alias = new int[n];
+            double sum = 0;
+            for (double w : weights) {
+                sum += w;
+            }
+            // the columns under the average are filled with a part of one over it
+            double[] scaled = new double[n];
+            int[] small = new int[n], large = new int[n];
+            int nSmall = 0, nLarge = 0;
+            for (int i = 0; i < n; i++) {
+                scaled[i] = weights[i] * n / sum;
+                if (scaled[i] < 1) {
+                    small[nSmall++] = i;
+                } else {
+                    large[nLarge++] = i;
+                }
+            }
+            while (nSmall > 0 && nLarge > 0) {
+                int s = small[--nSmall], l = large[--nLarge];
+                prob[s] = scaled[s];
+                alias[s] = l;
+                scaled[l] += scaled[s] - 1;
+                if (scaled[l] < 1) {
+                    small[nSmall++] = l;
+                } else {
+                    large[nLarge++] = l;
+                }
+            }
+            // what is left is full up to the rounding
+            while (nLarge > 0) {
+                prob[large[--nLarge]] = 1;
+            }
+            while (nSmall > 0) {
+                prob[small[--nSmall]] = 1;
+            }
+        }
+
+        @Override
+        public int next(SplittableRandom rnd) {
+            int i = rnd.nextInt(prob.length);
+            return rnd.nextDouble() < prob[i] ? i : alias[i];
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package smartRegex.evolutionEngine;
+
+import dk.brics.automaton.OORegexConverter;
+import dk.brics.automaton.RegExp;
+import dk.brics.automaton.oo.REGEXP_REPEAT;
+import dk.brics.automaton.oo.ooregex;
+import smartRegex.utils.RegexCandidate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Specialization of the final regex: every repeat {n,m} with n < m becomes {k,k}, with the values of k that give the
+// best fitness. With up to EXHAUSTIVE_LIMIT combinations all of them are evaluated, otherwise coordinate descent:
+// each sweep tries all the values of one repeat at a time with the others fixed, until a sweep changes nothing.
+// The regexes of a step are evaluated in parallel, and among the same fitness the largest values win, so the result
+// does not depend on the threads. The evaluations are taken from the budget of the run: when it is over the best
+// regex evaluated so far is the result
+class Specializer extends RegexRebuilder {
+
+    private static final int EXHAUSTIVE_LIMIT = 4096;
+    private static final int MAX_SWEEPS = 10;
+
+    private ooregex tree;
+    // the repeats to specialize in the order of the tree, values[i] is the k of repeats.get(i) (-1: left as it is)
+    private List<REGEXP_REPEAT> repeats = new ArrayList<>();
+    private Map<REGEXP_REPEAT, Integer> index = new IdentityHashMap<>();
+    private int[] values;
+    private Map<String, RegexCandidate> evaluated = new HashMap<>();
+    private ExecutorService executor;
+    private RunBudget budget;
+    // the budget ended before the search did
+    private boolean cut;
+
+    private Specializer(RegExp regex) {
+        tree = OORegexConverter.getOORegex(regex);
+        // with no values the visit only collects the repeats
+        tree.accept(this);
+    }
+
+    // the best specialization of the regex, null if it has no repeat to specialize
+    static RegexCandidate specialize(RegexCandidate best, int nThreads, RunBudget budget) {
+        long start = System.nanoTime();
+        Specializer s = new Specializer(best.regex);
+        if (s.repeats.isEmpty()) {
+            return null;
+        }
+        s.budget = budget;
+        long combinations = 1;
+        for (REGEXP_REPEAT r : s.repeats) {
+            combinations = Math.min(combinations * (r.max - r.min + 1), Long.MAX_VALUE / 1024);
+        }
+        boolean exhaustive = combinations <= EXHAUSTIVE_LIMIT;
+        s.executor = Executors.newFixedThreadPool(nThreads);
+        RegexCandidate result;
+        try {
+            result = exhaustive ? s.exhaustive() : s.descent();
+        } finally {
+            EvolutionEngine.shutdown(s.executor);
+        }
+        if (result == null) {
+            throw new RuntimeException("Cannot specialize regex: no budget left");
+        }
+        System.out.println("Specialized " + s.repeats.size() + " repeats (" + combinations + " combinations, "
+                + (exhaustive ? "all evaluated" : "coordinate descent") + "): " + s.evaluated.size()
+                + " regexes evaluated in " + (System.nanoTime() - start)/1e9f + " sec"
+                + (s.cut ? ", stopped by the budget" : ""));
+        return result;
+    }
+
+    @Override
+    ooregex repeat(REGEXP_REPEAT r, ooregex content) {
+        if (values == null) {
+            if (r.max != REGEXP_REPEAT.infinite && r.min < r.max) {
+                index.put(r, repeats.size());
+                repeats.add(r);
+            }
+            return r;
+        }
+        Integer i = index.get(r);
+        if (i == null || values[i] < 0) {
+            return same(r, content);
+        }
+        return REGEXP_REPEAT.REGEXP_REPEAT_MINMAX_N(content, values[i], values[i]);
+    }
+
+    @Override
+    public String getCode() {
+        return "SP";
+    }
+
+    // the regex with the current values
+    private RegExp build() {
+        return OORegexConverter.convertBackToRegex(tree.accept(this));
+    }
+
+    private RegexCandidate exhaustive() {
+        // the combinations in lexicographic order, the last repeat changes first
+        values = new int[repeats.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = repeats.get(i).min;
+        }
+        List<RegExp> regexps = new ArrayList<>();
+        while (true) {
+            regexps.add(build());
+            int i = values.length - 1;
+            while (i >= 0 && values[i] == repeats.get(i).max) {
+                values[i] = repeats.get(i).min;
+                i--;
+            }
+            if (i < 0) {
+                break;
+            }
+            values[i]++;
+        }
+        return best(evaluate(regexps), -1);
+    }
+
+    private RegexCandidate descent() {
+        values = new int[repeats.size()];
+        Arrays.fill(values, -1);
+        RegexCandidate current = null;
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+            boolean changed = false;
+            for (int i = 0; i < values.length; i++) {
+                if (budget.exhausted()) {
+                    cut = true;
+                    return current;
+                }
+                REGEXP_REPEAT r = repeats.get(i);
+                int old = values[i];
+                List<RegExp> regexps = new ArrayList<>();
+                for (int k = r.min; k <= r.max; k++) {
+                    values[i] = k;
+                    regexps.add(build());
+                }
+                List<RegexCandidate> candidates = evaluate(regexps);
+                RegexCandidate stepBest = best(candidates, old < 0 ? -1 : old - r.min);
+                if (stepBest == null) {
+                    values[i] = old;
+                    return current;
+                }
+                current = stepBest;
+                values[i] = r.min + candidates.indexOf(current);
+                changed |= values[i] != old;
+            }
+            if (!changed) {
+                break;
+            }
+        }
+        return current;
+    }
+
+    // the last one with the highest fitness, or the one at keep if it has it too. The candidates left out by the
+    // budget are null, null if all of them are
+    private static RegexCandidate best(List<RegexCandidate> candidates, int keep) {
+        RegexCandidate best = null;
+        for (RegexCandidate c : candidates) {
+            if (c != null && (best == null || c.fitness >= best.fitness)) {
+                best = c;
+            }
+        }
+        RegexCandidate kept = keep >= 0 ? candidates.get(keep) : null;
+        return kept != null && kept.fitness >= best.fitness ? kept : best;
+    }
+
+    // the candidates of the regexes, in the same order: the ones not evaluated yet are evaluated in parallel, as long
+    // as the budget lasts. Null for the ones it did not cover
+    private List<RegexCandidate> evaluate(List<RegExp> regexps) {
+        Map<String, Future<RegexCandidate>> tasks = new HashMap<>();
+        for (RegExp regex : regexps) {
+            String s = regex.toString();
+            if (!evaluated.containsKey(s) && !tasks.containsKey(s)) {
+                if (!budget.take()) {
+                    cut = true;
+                    break;
+                }
+                Callable<RegexCandidate> task = () -> {
+                    RegexCandidate c = new RegexCandidate(regex);
+                    c.fitness();
+                    return c;
+                };
+                tasks.put(s, executor.submit(task));
+            }
+        }
+        try {
+            for (Map.Entry<String, Future<RegexCandidate>> e : tasks.entrySet()) {
+                evaluated.put(e.getKey(), e.getValue().get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Cannot specialize regex", e);
+        }
+        List<RegexCandidate> candidates = new ArrayList<>();
+        for (RegExp regex : regexps) {
+            candidates.add(evaluated.get(regex.toString()));
+        }
+        return candidates;
+    }
+}
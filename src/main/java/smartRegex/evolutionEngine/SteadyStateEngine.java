@@ -0,0 +1,241 @@
+package smartRegex.evolutionEngine;
+
+import regex.operators.RegexMutator;
+import regex.utils.RegexFlags;
+import smartRegex.MainClass;
+import smartRegex.utils.RegexCandidate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SteadyStateEngine extends EvolutionEngine {
+
+    private int N_WORKERS, REPORT_EVERY;
+    // same amount of work of the generational engines: MAX_ITERATIONS generations of N_PARENTS parents
+    private long maxExpansions;
+    private AtomicLong expansions = new AtomicLong(), evaluations = new AtomicLong();
+    private volatile boolean finish = false;
+    private long startTime;
+    private ExecutorService executor;
+
+    public SteadyStateEngine() {
+        super();
+        N_WORKERS = MainClass.N_THREADS;
+        REPORT_EVERY = MainClass.REPORT_EVERY;
+        maxExpansions = (long) MAX_ITERATIONS * N_PARENTS;
+        executor = Executors.newFixedThreadPool(N_WORKERS);
+    }
+
+    @Override
+    public void close() {
+        shutdown(executor);
+    }
+
+    @Override
+    public String schedulingPolicy() {
+        return N_WORKERS + " workers, each one expands a parent at a time";
+    }
+
+    // there are no generations to write a checkpoint at
+    @Override
+    List<EvolutionEngine> populations() {
+        return null;
+    }
+
+    @Override
+    public double[] run() {
+        startRun();
+        setMates(pop);
+        // There are no generations: every worker picks a parent, mutates it and inserts each offspring in the
+        // population as soon as it is scored. The population lock is held only to pick and to replace
+        startTime = System.nanoTime();
+        finish = false;
+        expansions.set(0);
+        evaluations.set(0);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < N_WORKERS; i++) {
+            SplittableRandom workerRnd = rnd.split();
+            workers.add(executor.submit(() -> work(workerRnd)));
+        }
+        for (Future<?> t : workers) {
+            try {
+                t.get();
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        double[] profData = new double[2];
+        profData[0] = (System.nanoTime() - startTime)/1e6f;
+        profData[1] = evaluations.get();
+        pop.sort(Comparator.comparingDouble(r3 -> r3.fitness));
+        System.out.println("Parents expanded: " + Math.min(expansions.get(), maxExpansions) + " Offspring: " + evaluations.get());
+        chooseFinalRegex();
+        return profData;
+    }
+
+    private void work(SplittableRandom workerRnd) {
+        long expansion;
+        while (!finish && (expansion = expansions.getAndIncrement()) < maxExpansions) {
+            // N_PARENTS expansions make a generation
+            budget.generation((int) (expansion / N_PARENTS));
+            RegexCandidate parent = pickParent(workerRnd);
+            List<RegexCandidate> homParents = new ArrayList<>();
+            breed(parent, workerRnd, homParents);
+            for (RegexCandidate r : homParents) {
+                if (finish) {
+                    break;
+                }
+                breed(r, workerRnd, null);
+            }
+        }
+        finish = true;
+    }
+
+    private void breed(RegexCandidate parent, SplittableRandom workerRnd, List<RegexCandidate> homParents) {
+        RegexMutator.MutatedRegExp m;
+        Iterator<RegexMutator.MutatedRegExp> it = mutate(parent.regex, workerRnd);
+        while (it.hasNext() && !finish) {
+            //if it contains '~' I do not want it because it breaks the evolution by taking a high score only by having a correct side
+            if (!(m = it.next()).has(RegexFlags.COMPLEMENT)) {
+                RegexCandidate c = evaluateMutant(m, parent.fitness);
+                if (c == null) {
+                    finish = true;
+                    return;
+                }
+                if (scheduler != null) {
+                    scheduler.record(c);
+                }
+                // insert can bound the repeats of c, the HOM is done on the mutant as it is
+                RegexCandidate mutant = homParents != null ? c.copy() : null;
+                insert(c, workerRnd);
+                // only first order mutants can receive HOM
+                if (homParents != null && USE_HOM && workerRnd.nextDouble() < HOM_PERCENTAGE) {
+                    homParents.add(mutant);
+                }
+                long n = evaluations.incrementAndGet();
+                if (n % REPORT_EVERY == 0) {
+                    report(n);
+                }
+            }
+        }
+    }
+
+    // called by report holding the population lock, the mates of the crossover follow the new population
+    @Override
+    boolean restart() {
+        boolean restarted = super.restart();
+        setMates(pop);
+        return restarted;
+    }
+
+    private RegexCandidate pickParent(SplittableRandom workerRnd) {
+        // roulette over the current population, a uniform choice if no one has a positive fitness
+        synchronized (pop) {
+            double sum = 0;
+            for (RegexCandidate r : pop) {
+                sum += Math.max(r.fitness, 0);
+            }
+            if (sum <= 0) {
+                return pop.get(workerRnd.nextInt(pop.size()));
+            }
+            double t = workerRnd.nextDouble() * sum;
+            for (RegexCandidate r : pop) {
+                t -= Math.max(r.fitness, 0);
+                if (t < 0) {
+                    return r;
+                }
+            }
+            return pop.get(pop.size() - 1);
+        }
+    }
+
+    private void insert(RegexCandidate c, SplittableRandom workerRnd) {
+        // concurrent replace worst: the offspring takes the place of the worst individual if it is better and
+        // it is not already in the population. Its bounded regex is evaluated out of the lock, so the population
+        // is checked again before c goes in
+        if (worstBelow(c) < 0) {
+            return;
+        }
+        RegexCandidate bounded = bounded(c, workerRnd);
+        synchronized (pop) {
+            int worst = worstBelow(c);
+            if (worst >= 0) {
+                if (bounded != null) {
+                    keepBounded(c, bounded);
+                }
+                pop.set(worst, c);
+                if (MainClass.CROSS_RATE > 0) {
+                    setMates(pop);
+                }
+                if (c.fitness > 0.96) {
+                    finish = true;
+                }
+            }
+        }
+    }
+
+    // the index of the worst individual if c is better than it, -1 if c is not or it is already in the population
+    private int worstBelow(RegexCandidate c) {
+        String s = c.string();
+        synchronized (pop) {
+            int worst = 0;
+            for (int i = 0; i < pop.size(); i++) {
+                RegexCandidate r = pop.get(i);
+                if (r.string().equals(s)) {
+                    return -1;
+                }
+                if (r.fitness < pop.get(worst).fitness) {
+                    worst = i;
+                }
+            }
+            return c.fitness > pop.get(worst).fitness ? worst : -1;
+        }
+    }
+
+    // two workers can report at the same time, the epoch of the one that comes first is closed and printed first
+    private synchronized void report(long n) {
+        RegexCandidate best;
+        synchronized (pop) {
+            best = pop.get(0);
+            for (RegexCandidate r : pop) {
+                if (r.fitness > best.fitness) {
+                    best = r;
+                }
+            }
+        }
+        double sec = (System.nanoTime() - startTime)/1e9;
+        System.out.println("******************************** SS Evaluations " + n + " ********************************");
+        System.out.println("Parents expanded: " + Math.min(expansions.get(), maxExpansions) + " / " + maxExpansions);
+        System.out.println("Current best: " + best.regex + " with fitness " + best.fitness);
+        seen.nextEpoch();
+        if (scheduler != null) {
+            scheduler.nextGeneration();
+        }
+        printSearchStats();
+        System.out.println("Time: " + (float) sec + " sec (" + (int) (n / sec) + " evaluations/sec)\n");
+        // the population is judged as the generational engines judge it at the end of a generation, on the
+        // generations of N_PARENTS expansions done since the last report. A restart replaces it under the lock
+        int generation = (int) (Math.min(expansions.get(), maxExpansions) / N_PARENTS);
+        synchronized (pop) {
+            if (converged(generation - generationsRun, pop)) {
+                finish = true;
+            }
+        }
+        if (fri != null) {
+            synchronized (fri) {
+                double lastnum = fri.numFinalFaults;
+                fri.computeRatio(best.regex);
+                System.out.println("Fault index these evaluations over last ones: " + fri.numFinalFaults + " / " + lastnum + " --> Ratio: " + (fri.numFinalFaults / lastnum));
+                System.out.println("Fault index these evaluations over initial one: " + fri.numFinalFaults + " / " + fri.numInitialFaults + " --> Ratio: " + (fri.numFinalFaults / fri.numInitialFaults));
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package smartRegex.evolutionEngine;
+
+import smartRegex.MainClass;
+import smartRegex.utils.VirtualThreads;
+
+public class VirtualThreadEngine extends MultiThreadEngine {
+
+    // Same units of work as MultiThreadEngine (one task per parent and one per HOM candidate), but every
+    // unit is a new virtual thread multiplexed on at most N_CARRIERS platform threads
+    public VirtualThreadEngine() {
+        super(VirtualThreads.executor(MainClass.N_CARRIERS), "VT",
+                "one virtual thread per parent and per HOM candidate on " + MainClass.N_CARRIERS + " carrier threads");
+    }
+}
@@ -1,5 +1,6 @@
 package smartRegex.utils;
 
+import com.gliwka.hyperscan.wrapper.Database;
 import com.gliwka.hyperscan.wrapper.Match;
 import com.gliwka.hyperscan.wrapper.Scanner;
 import smartRegex.evolutionEngine.MultiHyperScanEngine;
@@ -10,13 +11,14 @@ import java.util.concurrent.CyclicBarrier;
 
 public class HyperScanThread implements Runnable {
 
-    private LabeledString matching;
-    private List<RegexCandidate> offspring;
+    private MultiHyperScanEngine engine;
+    // the strings this thread scans
+    private List<LabeledString> matching;
     private CyclicBarrier startBarrier, endBarrier;
 
-    public HyperScanThread(LabeledString matching, List<RegexCandidate> offspring, CyclicBarrier startBarrier, CyclicBarrier endBarrier) {
+    public HyperScanThread(MultiHyperScanEngine engine, List<LabeledString> matching, CyclicBarrier startBarrier, CyclicBarrier endBarrier) {
+        this.engine = engine;
         this.matching = matching;
-        this.offspring = offspring;
         this.startBarrier = startBarrier;
         this.endBarrier = endBarrier;
     }
@@ -24,17 +26,17 @@ public class HyperScanThread implements Runnable {
     @Override
     public void run() {
         // This thread is waken by the main entering the start barrier. While the main thread goes to sleep in the
-        // end barrier, the matches for the LabelledString are found. At the end it goes in the end barrier, when
+        // end barrier, the matches for its LabelledStrings are found. At the end it goes in the end barrier, when
         // all threads are done the main thread is waken and the cycle is repeated for the next generation
-        while (!MultiHyperScanEngine.finish) {
+        while (!engine.finished()) {
             try {
                 startBarrier.await();
             } catch (InterruptedException | BrokenBarrierException ignored) {}
-            if (MultiHyperScanEngine.finish) {
+            if (engine.finished()) {
                 break;
             }
             findMatches();
-            if (MultiHyperScanEngine.finish) {
+            if (engine.finished()) {
                 break;
             }
             try {
@@ -44,18 +46,27 @@ public class HyperScanThread implements Runnable {
     }
 
     private void findMatches() {
+        score(engine.database(), matching);
+    }
+
+    // adds to the fitness of the candidates of the database the points they earn on the strings
+    public static void score(Database database, List<LabeledString> strings) {
         try {
             Scanner scanner = new Scanner();
-            scanner.allocScratch(MultiHyperScanEngine.regexDatabase);
-            List<Match> matches = scanner.scan(MultiHyperScanEngine.regexDatabase, matching.string);
-            // The regex that matches this string (if accepted) earns points
-            // proportionally to the match length, otherwise it loses points.
-            for (Match m: matches) {
-                long length = 1 + (m.getEndPosition() - m.getStartPosition());
-                if (matching.accepted) {
-                    offspring.get(m.regexIndex).fitness += length * length;
-                } else {
-                    offspring.get(m.regexIndex).fitness -= (length * length) / 2;
+            scanner.allocScratch(database);
+            for (LabeledString l : strings) {
+                List<Match> matches = scanner.scan(database, l.string);
+                // The regex that matches this string (if accepted) earns points
+                // proportionally to the match length, otherwise it loses points.
+                // The candidate of the regex is the context of its expression
+                for (Match m: matches) {
+                    long length = 1 + (m.getEndPosition() - m.getStartPosition());
+                    RegexCandidate c = (RegexCandidate) m.getMatchedExpression().getContext();
+                    if (l.accepted) {
+                        c.fitness += length * length;
+                    } else {
+                        c.fitness -= (length * length) / 2;
+                    }
                 }
             }
             scanner.close();
@@ -3,8 +3,9 @@ package smartRegex.utils;
 import com.gliwka.hyperscan.wrapper.Expression;
 import com.gliwka.hyperscan.wrapper.ExpressionFlag;
 import dk.brics.automaton.RegExp;
-import regex.operators.AllMutators;
 import regex.operators.RegexMutator;
+import regex.utils.RegexFlags;
+import smartRegex.evolutionEngine.EvolutionEngine;
 import smartRegex.evolutionEngine.MultiThreadV2Engine;
 
 import java.util.*;
@@ -13,14 +14,22 @@ import java.util.concurrent.CyclicBarrier;
 
 public class MutationThread implements Runnable {
 
-    public RegExp regex;
+    // the parents assigned to this thread in the current generation
+    public List<RegexCandidate> parents = new ArrayList<>();
+    // rnds.get(i) is the generator of parents.get(i): it is used for its mutation and to choose its HOM mutants
+    public List<SplittableRandom> rnds = new ArrayList<>();
+    // the engine this thread works for, it evaluates the offspring within the budget of the run
+    private MultiThreadV2Engine engine;
     private boolean hyperScan;
     private CyclicBarrier homBarrierStart, homBarrierEnd;
     private HomThread[] homThreads;
+    private Thread[] homWorkers;
     private ArrayList<RegExp> mutatedRegex;
-    private List<RegexCandidate> offspring;
-    private List<Expression> hyperOffspring;
-    private SplittableRandom rnd;
+    // mutatedFitness.get(i) is the fitness of mutatedRegex.get(i), NaN if it is not known yet (Hyperscan)
+    private ArrayList<Double> mutatedFitness = new ArrayList<>();
+    // offspring of this thread and of its HomThreads, and the expressions of the ones that Hyperscan has to score
+    private List<RegexCandidate> offspring = new ArrayList<>();
+    private List<Expression> hyperOffspring = new ArrayList<>();
     private boolean USE_HOM;
     private int N_HOM_THREADS;
     private float HOM_PERCENTAGE;
@@ -29,142 +38,142 @@ public class MutationThread implements Runnable {
     private class HomThread implements Runnable {
 
         private ArrayList<RegExp> regex = new ArrayList<>();
+        private ArrayList<Double> fitness = new ArrayList<>();
+        private ArrayList<SplittableRandom> rnds = new ArrayList<>();
+        private List<RegexCandidate> offspring = new ArrayList<>();
+        private List<Expression> hyperOffspring = new ArrayList<>();
 
         @Override
         public void run() {
             // HomThread are inner threads that calculate the second order mutation. While the parent thread
             // synchronizes with the main thread with start barrier and end barrier, this one synchronizes
             // with the parent thread with hom barriers
-            while (!MultiThreadV2Engine.finish) {
+            while (!engine.finished()) {
                 try {
                     homBarrierStart.await();
                 } catch (InterruptedException | BrokenBarrierException ignored) {}
-                if (MultiThreadV2Engine.finish) {
+                if (engine.finished()) {
                     return;
                 }
-                for (RegExp r: regex) {
-                    RegExp mutated;
-                    Iterator<RegexMutator.MutatedRegExp> it = AllMutators.mutator.mutate(r);
-                    while (it.hasNext()) {
-                        mutated = it.next().mutatedRexExp;
-                        String s = mutated.toString();
-                        if (!s.contains("~")) {
-                            // for hyper scan we have ensure that no regex matches an empty string, so the ones containing
-                            // ^ or {0, or * or ? are refused. There are no problems in the other cases (no hyper scan)
-                            if (!hyperScan || (!s.contains("^") && !s.contains("{0,") && !s.contains("*") && !s.contains("?"))) {
-                                RegexCandidate c = new RegexCandidate(mutated);
-                                if (hyperScan) {
-                                    // hyperScan uses it own fitness calculation, removing the backslash too
-                                    String regex = c.regex.toString().replace("\\", "");
-                                    hyperOffspring.add(new Expression(regex, EnumSet.of(ExpressionFlag.SOM_LEFTMOST)));
-                                } else {
-                                    c.fitness();
-                                }
-                                offspring.add(c);
-                            }
-                        }
-                    }
+                for (int i = 0; i < regex.size(); i++) {
+                    mutate(regex.get(i), fitness.get(i), rnds.get(i), offspring, hyperOffspring, null);
                 }
-                if (MultiThreadV2Engine.finish) {
+                if (engine.finished()) {
                     break;
                 }
                 try {
                     homBarrierEnd.await();
                 } catch (InterruptedException | BrokenBarrierException ignored) {}
                 regex.clear();
+                fitness.clear();
+                rnds.clear();
             }
         }
     }
 
-    public MutationThread(List<RegexCandidate> offspring, boolean USE_HOM, int N_HOM_THREADS, float HOM_PERCENTAGE, CyclicBarrier mutBarrierStart, CyclicBarrier mutBarrierEnd) {
+    // With less than 2 HOM threads the second order mutation is done by this thread itself: a single HomThread
+    // would only make it wait
+    public MutationThread(MultiThreadV2Engine engine, boolean USE_HOM, int N_HOM_THREADS, float HOM_PERCENTAGE, CyclicBarrier mutBarrierStart, CyclicBarrier mutBarrierEnd) {
+        this.engine = engine;
         this.mutatedRegex = new ArrayList<>();
-        this.offspring = offspring;
-        this.rnd = new SplittableRandom();
         this.USE_HOM = USE_HOM;
-        this.N_HOM_THREADS = N_HOM_THREADS;
+        this.N_HOM_THREADS = N_HOM_THREADS < 2 ? 0 : N_HOM_THREADS;
         this.HOM_PERCENTAGE = HOM_PERCENTAGE;
         this.mutBarrierStart = mutBarrierStart;
         this.mutBarrierEnd = mutBarrierEnd;
-        if (USE_HOM) {
-            this.homThreads = new HomThread[N_HOM_THREADS];
-            this.homBarrierStart = new CyclicBarrier(N_HOM_THREADS + 1);
-            this.homBarrierEnd = new CyclicBarrier(N_HOM_THREADS + 1);
+        if (USE_HOM && this.N_HOM_THREADS > 0) {
+            this.homThreads = new HomThread[this.N_HOM_THREADS];
+            this.homWorkers = new Thread[this.N_HOM_THREADS];
+            this.homBarrierStart = new CyclicBarrier(this.N_HOM_THREADS + 1);
+            this.homBarrierEnd = new CyclicBarrier(this.N_HOM_THREADS + 1);
             for (int i = 0; i < homThreads.length; i++) {
                 homThreads[i] = new HomThread();
-                new Thread(homThreads[i]).start();
+                homWorkers[i] = new Thread(homThreads[i]);
+                homWorkers[i].start();
             }
         }
     }
 
-    public MutationThread(List<RegexCandidate> offspring, List<Expression> hyperOffspring, boolean USE_HOM, int N_HOM_THREADS, float HOM_PERCENTAGE, CyclicBarrier mutBarrierStart, CyclicBarrier mutBarrierEnd) {
-        this(offspring, USE_HOM, N_HOM_THREADS, HOM_PERCENTAGE, mutBarrierStart, mutBarrierEnd);
-        this.hyperOffspring = hyperOffspring;
-        this.hyperScan = true;
+    public MutationThread(MultiThreadV2Engine engine, boolean hyperScan, boolean USE_HOM, int N_HOM_THREADS, float HOM_PERCENTAGE, CyclicBarrier mutBarrierStart, CyclicBarrier mutBarrierEnd) {
+        this(engine, USE_HOM, N_HOM_THREADS, HOM_PERCENTAGE, mutBarrierStart, mutBarrierEnd);
+        this.hyperScan = hyperScan;
+    }
+
+    // Called by the engine between the end barrier and the next start barrier, when this thread is idle
+    public void drainInto(List<RegexCandidate> offspring, List<Expression> hyperOffspring) {
+        offspring.addAll(this.offspring);
+        this.offspring.clear();
+        if (hyperOffspring != null) {
+            hyperOffspring.addAll(this.hyperOffspring);
+        }
+        this.hyperOffspring.clear();
     }
 
     @Override
     public void run() {
-        while (!MultiThreadV2Engine.finish) {
+        while (!engine.finished()) {
             try {
                 mutBarrierStart.await();
             } catch (InterruptedException | BrokenBarrierException ignored) {}
-            if (MultiThreadV2Engine.finish) {
+            if (engine.finished()) {
                 break;
             }
-            mutatedRegex.clear();
             mutation();
-            if (MultiThreadV2Engine.finish) {
+            if (engine.finished()) {
                 break;
             }
             try {
                 mutBarrierEnd.await();
             } catch (InterruptedException | BrokenBarrierException ignored) {}
         }
-        if (USE_HOM) {
-            homBarrierEnd.reset();
-            homBarrierStart.reset();
+        if (homThreads != null) {
+            // the HomThreads are waiting in the start barrier, the interrupt wakes them up and they see finish
+            for (Thread t : homWorkers) {
+                t.interrupt();
+            }
+            for (Thread t : homWorkers) {
+                try {
+                    t.join();
+                } catch (InterruptedException ignored) {}
+            }
         }
     }
 
     private void mutation() {
-        RegExp mutated;
-        Iterator<RegexMutator.MutatedRegExp> it = AllMutators.mutator.mutate(regex);
-        while (it.hasNext()) {
-            mutated = it.next().mutatedRexExp;
-            String s = mutated.toString();
-            if (!s.contains("~")) {
-                if (!hyperScan || (!s.contains("^") && !s.contains("{0,") && !s.contains("*") && !s.contains("?"))) {
-                    RegexCandidate c = new RegexCandidate(mutated);
-                    if (hyperScan) {
-                        String regex = c.regex.toString().replace("\\", "");
-                        hyperOffspring.add(new Expression(regex, EnumSet.of(ExpressionFlag.SOM_LEFTMOST)));
-                    } else {
-                        c.fitness();
-                    }
-                    mutatedRegex.add(c.regex);
-                    offspring.add(c);
-                }
+        int homThreadIndex = 0;
+        for (int i = 0; i < parents.size(); i++) {
+            SplittableRandom parentRnd = rnds.get(i);
+            mutatedRegex.clear();
+            mutatedFitness.clear();
+            mutate(parents.get(i).regex, parents.get(i).fitness, parentRnd, offspring, hyperOffspring, mutatedRegex);
+            if (!USE_HOM) {
+                continue;
             }
-        }
-        if (USE_HOM) {
+            // the HOM mutants are chosen among the ones of each parent, so the choice does not depend on how the
+            // parents are split among the threads
             int size = mutatedRegex.size();
             int n = (int) (size * HOM_PERCENTAGE);
-            int nRegexAssigned = 0;
-            int homThreadIndex = 0;
-            ArrayList<Integer> chosen = new ArrayList<>();
-            while (nRegexAssigned < n) {
+            boolean[] chosen = new boolean[size];
+            for (int nRegexAssigned = 0; nRegexAssigned < n; nRegexAssigned++) {
                 int index;
                 do {
-                    index = rnd.nextInt(size);
-                } while (chosen.contains(index));
-                chosen.add(index);
-                homThreads[homThreadIndex].regex.add(mutatedRegex.get(index));
-                homThreadIndex++;
-                nRegexAssigned++;
-                if (homThreadIndex == N_HOM_THREADS) {
-                    homThreadIndex = 0;
+                    index = parentRnd.nextInt(size);
+                } while (chosen[index]);
+                chosen[index] = true;
+                if (homThreads == null) {
+                    mutate(mutatedRegex.get(index), mutatedFitness.get(index), parentRnd.split(), offspring, hyperOffspring, null);
+                } else {
+                    homThreads[homThreadIndex].regex.add(mutatedRegex.get(index));
+                    homThreads[homThreadIndex].fitness.add(mutatedFitness.get(index));
+                    homThreads[homThreadIndex].rnds.add(parentRnd.split());
+                    homThreadIndex++;
+                    if (homThreadIndex == N_HOM_THREADS) {
+                        homThreadIndex = 0;
+                    }
                 }
             }
+        }
+        if (USE_HOM && homThreads != null) {
             try {
                 homBarrierStart.await();
             } catch (InterruptedException | BrokenBarrierException e) {
@@ -175,6 +184,58 @@ public class MutationThread implements Runnable {
             } catch (InterruptedException | BrokenBarrierException e) {
                 e.printStackTrace();
             }
+            for (HomThread h : homThreads) {
+                offspring.addAll(h.offspring);
+                hyperOffspring.addAll(h.hyperOffspring);
+                h.offspring.clear();
+                h.hyperOffspring.clear();
+            }
+        }
+    }
+
+    private void mutate(RegExp r, double fitness, SplittableRandom taskRnd, List<RegexCandidate> offspring, List<Expression> hyperOffspring, List<RegExp> mutatedRegex) {
+        RegexMutator.MutatedRegExp m;
+        Iterator<RegexMutator.MutatedRegExp> it = engine.mutate(r, taskRnd);
+        while (it.hasNext()) {
+            if (!(m = it.next()).has(RegexFlags.COMPLEMENT)) {
+                // for hyper scan we have ensure that no regex matches an empty string, so the ones with a repeat
+                // that can be empty or a ^, * or ? (an operator once the backslashes are removed) are refused.
+                // There are no problems in the other cases (no hyper scan)
+                if (!hyperScan || !m.has(RegexFlags.EMPTY_REPEAT | RegexFlags.BARE_OPERATOR)) {
+                    RegexCandidate c;
+                    double mutatedFit;
+                    if (hyperScan) {
+                        // a regex already scored keeps that fitness
+                        if ((c = engine.known(m, fitness)) != null) {
+                            mutatedFit = c.fitness;
+                        } else {
+                            c = new RegexCandidate(m, fitness);
+                            mutatedFit = Double.NaN;
+                            // hyperScan uses it own fitness calculation, removing the backslash too. The expression
+                            // brings the candidate its matches are scored on
+                            String regex = c.string().replace("\\", "");
+                            hyperOffspring.add(new Expression(regex, EnumSet.of(ExpressionFlag.SOM_LEFTMOST), c));
+                        }
+                    } else {
+                        try {
+                            c = engine.evaluateOnce(m, fitness);
+                        } catch (RuntimeException e) {
+                            // a mutant that cannot be built or evaluated is skipped, the thread goes on with the others
+                            e.printStackTrace();
+                            continue;
+                        }
+                        if (c == null) {
+                            return;
+                        }
+                        mutatedFit = c.fitness;
+                    }
+                    if (mutatedRegex != null) {
+                        mutatedRegex.add(c.regex);
+                        mutatedFitness.add(mutatedFit);
+                    }
+                    offspring.add(c);
+                }
+            }
         }
     }
-}
\ No newline at end of file
+}
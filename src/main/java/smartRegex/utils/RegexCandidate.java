@@ -2,13 +2,27 @@ package smartRegex.utils;
 
 import dk.brics.automaton.Automaton;
 import dk.brics.automaton.RegExp;
+import regex.operators.RegexMutator;
+import regex.utils.OOAutomatonCompiler;
 import smartRegex.evolutionEngine.EvolutionEngine;
 
 public class RegexCandidate {
 
+    // null in a light copy until it is needed
     private Automaton automaton;
     public RegExp regex;
+    // regex.toString(), that builds a new string at every call
+    private String string;
     public double fitness;
+    // for the operator statistics: the operator that produced this regex and the fitness of the regex it was
+    // produced from (NaN if it is not known)
+    public String operator;
+    public double parentFitness = Double.NaN;
+    // the fitness without the penalty of the |, and the average time of the automaton on a string
+    public double accuracy;
+    public double matchNanos;
+    // states of the minimal DFA, 0 until states() is called
+    private int states;
 
     public RegexCandidate(String regex) {
         this.regex = new RegExp(regex);
@@ -21,17 +35,33 @@ public class RegexCandidate {
         automaton = regex.toAutomaton();
     }
 
+    // the automaton of a mutant is compiled from its objects, its string is the one the mutant has already built
+    public RegexCandidate(RegexMutator.MutatedRegExp mutant, double parentFitness) {
+        regex = mutant.regExp();
+        automaton = OOAutomatonCompiler.compile(mutant.tree);
+        string = mutant.string();
+        this.operator = mutant.description;
+        this.parentFitness = parentFitness;
+    }
+
+    private RegexCandidate() {
+    }
+
 
     public void fitness() {
         double fit = 0;
+        long start = System.nanoTime();
+        Automaton automaton = automaton();
         for (LabeledString l : EvolutionEngine.strings) {
             boolean result = automaton.run(l.string);
             if (result == l.accepted)
                 fit++;
         }
+        matchNanos = (double) (System.nanoTime() - start) / EvolutionEngine.strings.size();
         fitness = fit / EvolutionEngine.strings.size();
+        accuracy = fitness;
         // Penalizing the regex that contains the or | character because they can be very long
-        int count = regex.toString().length() - regex.toString().replace("|", "").length();
+        int count = string().length() - string().replace("|", "").length();
         fitness -= 0.04 * count;
 
     }
@@ -39,13 +69,53 @@ public class RegexCandidate {
     public void normalizeFitness(double max) {
         // Function that normalizes the fitness between 0 and 1 bounds. Used only for hyperScan
         fitness /= max;
-        int count = regex.toString().length() - regex.toString().replace("|", "").length();
+        accuracy = fitness;
+        int count = string().length() - string().replace("|", "").length();
         fitness -= 0.04 * count;
     }
 
     public void replace(RegexCandidate sub) {
         this.regex = sub.regex;
+        this.string = sub.string;
         this.automaton = sub.automaton;
         this.fitness = sub.fitness;
+        this.accuracy = sub.accuracy;
+        this.matchNanos = sub.matchNanos;
+        this.states = sub.states;
+    }
+
+    public String string() {
+        if (string == null) {
+            string = regex.toString();
+        }
+        return string;
+    }
+
+    public int states() {
+        if (states == 0) {
+            states = automaton().getNumberOfStates();
+        }
+        return states;
+    }
+
+    private Automaton automaton() {
+        if (automaton == null) {
+            automaton = regex.toAutomaton();
+        }
+        return automaton;
+    }
+
+    public RegexCandidate copy() {
+        RegexCandidate c = new RegexCandidate();
+        c.replace(this);
+        return c;
+    }
+
+    // a copy without the automaton, that is built again only if it is needed: the evaluated regexes of a whole run
+    // are kept this way (see SeenSet)
+    public RegexCandidate lightCopy() {
+        RegexCandidate c = copy();
+        c.automaton = null;
+        return c;
     }
 }
\ No newline at end of file
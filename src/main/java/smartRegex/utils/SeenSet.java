@@ -0,0 +1,104 @@
+package smartRegex.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The regexes already evaluated in a run, each one with its evaluation, so that a duplicate mutant takes the fitness
+// of the first one instead of being built and evaluated again: it is still an offspring and competes for a place in
+// the population. Each regex remembers the last epoch (generation) it was produced in: when the set is full the
+// oldest epochs are evicted. Eviction only happens between epochs, so with the same seed the content does not depend
+// on the threads
+public class SeenSet {
+
+    private static class Entry {
+        // without its automaton, see RegexCandidate.lightCopy
+        RegexCandidate candidate;
+        volatile int epoch;
+
+        Entry(RegexCandidate candidate, int epoch) {
+            this.candidate = candidate;
+            this.epoch = epoch;
+        }
+    }
+
+    // 0: nothing is remembered
+    private int capacity;
+    private ConcurrentHashMap<String, Entry> seen = new ConcurrentHashMap<>();
+    private volatile int epoch = 0;
+    // taken and reset at once by nextEpoch, the steady state engine closes an epoch while its workers go on
+    private AtomicLong offered = new AtomicLong(), reused = new AtomicLong();
+    private long lastOffered, lastReused;
+
+    public SeenSet(int capacity) {
+        this.capacity = capacity;
+    }
+
+    // A new candidate with the evaluation of the regex, that the caller fills with its operator and parent. Null if
+    // the regex has not been evaluated in this run
+    public RegexCandidate get(String regex) {
+        offered.incrementAndGet();
+        Entry e = capacity > 0 ? seen.get(regex) : null;
+        if (e == null) {
+            return null;
+        }
+        e.epoch = epoch;
+        reused.incrementAndGet();
+        return e.candidate.copy();
+    }
+
+    // an evaluated regex: a mutant or a regex known without being offered, e.g. the initial population
+    public void put(RegexCandidate c) {
+        if (capacity > 0) {
+            seen.putIfAbsent(c.string(), new Entry(c.lightCopy(), epoch));
+        }
+    }
+
+    // Closes the current epoch. It must not overlap with get() and put() if the run has to be reproducible
+    public void nextEpoch() {
+        lastOffered = offered.getAndSet(0);
+        lastReused = reused.getAndSet(0);
+        epoch++;
+        if (capacity > 0 && seen.size() > capacity) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        // the oldest epochs go until the set is at 3/4 of its capacity, so that it is not evicted at every epoch.
+        // The epoch just closed always stays, also when it is larger than the whole capacity
+        TreeMap<Integer, Integer> sizes = new TreeMap<>();
+        for (Entry e : seen.values()) {
+            sizes.merge(e.epoch, 1, Integer::sum);
+        }
+        int size = seen.size();
+        int last = -1;
+        for (Map.Entry<Integer, Integer> e : sizes.entrySet()) {
+            if (size <= capacity * 3 / 4 || e.getKey() == epoch - 1) {
+                break;
+            }
+            size -= e.getValue();
+            last = e.getKey();
+        }
+        final int oldest = last;
+        seen.values().removeIf(e -> e.epoch <= oldest);
+    }
+
+    public void clear() {
+        seen.clear();
+        offered.set(0);
+        reused.set(0);
+        epoch = 0;
+    }
+
+    // the duplicates of the last closed epoch
+    public String report() {
+        if (capacity == 0) {
+            return "dedup disabled";
+        }
+        return lastReused + " of " + lastOffered + " mutants already evaluated ("
+                + String.format("%.1f", lastOffered == 0 ? 0 : 100.0 * lastReused / lastOffered) + "%), "
+                + seen.size() + " regexes remembered";
+    }
+}
@@ -0,0 +1,78 @@
+package smartRegex.utils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+
+public class VirtualThreads {
+
+    // the carriers of the default scheduler, 0 before the first virtual thread of the JVM
+    private static int carriersInUse;
+
+    // The project is still compiled for Java 8, so the JDK 21 virtual thread API is reached through reflection
+    // and this class fails only when the virtual mode is actually requested on an older JVM
+
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    // an executor that starts a new virtual thread for each task
+    public static ExecutorService executor(int carriers) {
+        try {
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, factory(carriers));
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Cannot create virtual threads", e);
+        }
+    }
+
+    private static ThreadFactory factory(int carriers) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or newer, running on " + System.getProperty("java.version"));
+        }
+        bindCarriers(carriers);
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Cannot create virtual threads", e);
+        }
+    }
+
+    // The default scheduler reads its size only once, when the first virtual thread of the JVM is created, so the
+    // carrier pool is bounded before that and cannot change later: a run that asks for other carriers is told how
+    // many it gets
+    private static synchronized void bindCarriers(int carriers) {
+        if (carriersInUse == 0) {
+            System.setProperty("jdk.virtualThreadScheduler.parallelism", String.valueOf(carriers));
+            System.setProperty("jdk.virtualThreadScheduler.maxPoolSize", String.valueOf(carriers));
+            int parallelism = schedulerParallelism();
+            carriersInUse = parallelism > 0 ? parallelism : carriers;
+        }
+        if (carriers != carriersInUse) {
+            System.out.println("Warning: the virtual threads run on " + carriersInUse + " carriers, not " + carriers
+                    + ": the scheduler of this JVM was already sized");
+        }
+    }
+
+    // the parallelism of the default scheduler, -1 if the JVM does not let it be read (it needs
+    // --add-opens java.base/java.lang=ALL-UNNAMED)
+    private static int schedulerParallelism() {
+        try {
+            Field scheduler = Class.forName("java.lang.VirtualThread").getDeclaredField("DEFAULT_SCHEDULER");
+            scheduler.setAccessible(true);
+            return ((ForkJoinPool) scheduler.get(null)).getParallelism();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+}